@@ -27,6 +27,7 @@ import org.apache.logging.log4j.Logger;
 
 import io.github.marcelovca90.data.DatasetMetadata;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.core.OptionHandler;
 import weka.core.Utils;
 
@@ -99,6 +100,18 @@ public class ClassifierBuilder
         return this;
     }
 
+    public boolean isUpdateable(String className)
+    {
+        try
+        {
+            return UpdateableClassifier.class.isAssignableFrom(Class.forName(className));
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
     public Classifier build()
     {
         Classifier classifier = null;
@@ -107,6 +120,11 @@ public class ClassifierBuilder
         {
             Class<?> clazz = Class.forName(className);
             classifier = (Classifier) clazz.newInstance();
+            if (SearchSpace.isSearchable(options))
+            {
+                // searchable options start from the center of their ranges until a search replaces them
+                options = new SearchSpace(options).getDefault();
+            }
             ((OptionHandler) classifier).setOptions(Utils.splitOptions(options));
 
             LOGGER.info("Built classifier \"{}\" with options \"{}\".", className, options);
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.classification;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.data.DatasetMetadata;
+import io.github.marcelovca90.evaluation.EvaluationHelper;
+import io.github.marcelovca90.evaluation.TimedEvaluation;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
+
+public class HyperparameterSearch
+{
+    private static final Logger LOGGER = LogManager.getLogger(HyperparameterSearch.class);
+    private static final int STARTUP_TRIALS = 5;
+    private static final int CANDIDATES = 24;
+    private static final double GOOD_FRACTION = 0.25;
+    private static final double BANDWIDTH = 0.1;
+
+    public enum Strategy
+    {
+        RANDOM,
+        BAYESIAN
+    }
+
+    private final Strategy strategy;
+    private final int trials;
+    private final int parallelism;
+    private final int folds;
+    private final String metric;
+    private final String trialLog;
+
+    public HyperparameterSearch(Strategy strategy, int trials, int parallelism, int folds, String metric, String trialLog)
+    {
+        this.strategy = strategy;
+        this.trials = trials;
+        this.parallelism = Math.max(1, parallelism);
+        this.folds = folds;
+        this.metric = metric;
+        this.trialLog = trialLog;
+    }
+
+    public Trial search(String className, SearchSpace space, DatasetMetadata metadata, Instances trainSet, int seed) throws Exception
+    {
+        // trials are scored on an inner validation fold of the training set only
+        Random random = new Random(seed);
+        Instances inner = new Instances(trainSet);
+        inner.randomize(random);
+        inner.stratify(folds);
+        Instances innerTrainSet = inner.trainCV(folds, 0);
+        Instances validationSet = inner.testCV(folds, 0);
+
+        List<Trial> history = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable ->
+        {
+            Thread thread = new Thread(runnable, "hyperparameter-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try
+        {
+            while (history.size() < trials)
+            {
+                List<Future<Trial>> batch = new ArrayList<>();
+                for (double[] point : propose(history, Math.min(parallelism, trials - history.size()), space.dimensions(), random))
+                    batch.add(executor.submit(() -> evaluate(className, space, point, metadata, innerTrainSet, validationSet)));
+
+                for (Future<Trial> future : batch)
+                {
+                    Trial trial = future.get();
+                    history.add(trial);
+                    record(metadata, className, trial);
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Trial best = history.stream().filter(t -> !Double.isNaN(t.getScore())).max(Comparator.comparingDouble(Trial::getScore)).orElse(history.get(0));
+        LOGGER.info("Best options for \"{}\" after {} trial(s): \"{}\" ({} = {}).", className, history.size(), best.getOptions(), metric, best.getScore());
+
+        return best;
+    }
+
+    private List<double[]> propose(List<Trial> history, int count, int dimensions, Random random)
+    {
+        List<double[]> points = new ArrayList<>();
+
+        List<Trial> scored = history.stream().filter(t -> !Double.isNaN(t.getScore())).sorted(Comparator.comparingDouble(Trial::getScore).reversed()).collect(Collectors.toList());
+        int goodCount = (int) Math.ceil(GOOD_FRACTION * scored.size());
+
+        for (int i = 0; i < count; i++)
+        {
+            if (strategy == Strategy.RANDOM || scored.size() < STARTUP_TRIALS || goodCount >= scored.size())
+            {
+                points.add(uniform(dimensions, random));
+            }
+            else
+            {
+                // tree-structured Parzen estimator: maximize the density ratio between good and bad trials
+                List<Trial> good = scored.subList(0, goodCount);
+                List<Trial> bad = scored.subList(goodCount, scored.size());
+
+                double[] bestCandidate = null;
+                double bestRatio = Double.NEGATIVE_INFINITY;
+                for (int c = 0; c < CANDIDATES; c++)
+                {
+                    double[] center = good.get(random.nextInt(good.size())).getPoint();
+                    double[] candidate = new double[dimensions];
+                    for (int d = 0; d < dimensions; d++)
+                        candidate[d] = Math.min(1.0, Math.max(0.0, center[d] + BANDWIDTH * random.nextGaussian()));
+
+                    double ratio = density(candidate, good) / density(candidate, bad);
+                    if (ratio > bestRatio)
+                    {
+                        bestRatio = ratio;
+                        bestCandidate = candidate;
+                    }
+                }
+                points.add(bestCandidate);
+            }
+        }
+
+        return points;
+    }
+
+    private double[] uniform(int dimensions, Random random)
+    {
+        double[] point = new double[dimensions];
+        for (int d = 0; d < dimensions; d++)
+            point[d] = random.nextDouble();
+        return point;
+    }
+
+    private double density(double[] point, List<Trial> trials)
+    {
+        double density = 0.0;
+        for (Trial trial : trials)
+        {
+            double squaredDistance = 0.0;
+            for (int d = 0; d < point.length; d++)
+                squaredDistance += Math.pow(point[d] - trial.getPoint()[d], 2);
+            density += Math.exp(-squaredDistance / (2 * BANDWIDTH * BANDWIDTH));
+        }
+        return (density + Double.MIN_VALUE) / trials.size();
+    }
+
+    private Trial evaluate(String className, SearchSpace space, double[] point, DatasetMetadata metadata, Instances innerTrainSet, Instances validationSet)
+    {
+        String options = space.instantiate(point);
+        Classifier classifier = new ClassifierBuilder().withClassName(className).withOptions(options).customize(metadata).build();
+        if (classifier == null)
+            return new Trial(point, options, Double.NaN, 0L);
+
+        try
+        {
+            TimedEvaluation evaluation = new TimedEvaluation(validationSet);
+
+            evaluation.markTrainStart();
+            try
+            {
+                classifier.buildClassifier(innerTrainSet);
+            }
+            finally
+            {
+                evaluation.markTrainEnd();
+            }
+
+            evaluation.markTestStart();
+            try
+            {
+                evaluation.evaluateModel(classifier, validationSet);
+            }
+            finally
+            {
+                evaluation.markTestEnd();
+            }
+
+            double score = new EvaluationHelper().measure(evaluation).get(metric);
+            String resolvedOptions = Utils.joinOptions(((OptionHandler) classifier).getOptions());
+            return new Trial(point, resolvedOptions, score, evaluation.trainingTime() + evaluation.testingTime());
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("Could not evaluate options \"" + options + "\".", e);
+            return new Trial(point, options, Double.NaN, 0L);
+        }
+    }
+
+    private synchronized void record(DatasetMetadata metadata, String className, Trial trial)
+    {
+        LOGGER.info("Trial for \"{}\" with options \"{}\": {} = {} in {} ms.", className, trial.getOptions(), metric, trial.getScore(), trial.getCost());
+
+        if (StringUtils.isBlank(trialLog))
+            return;
+
+        String line = String.join("\t", metadata.getFolder(), className, trial.getOptions(), String.valueOf(trial.getScore()), String.valueOf(trial.getCost()));
+        try
+        {
+            FileUtils.writeLines(new File(trialLog), "UTF-8", Collections.singletonList(line), true);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Unable to append to trial log file " + trialLog + ".", e);
+        }
+    }
+
+    public static class Trial
+    {
+        private final double[] point;
+        private final String options;
+        private final double score;
+        private final long cost;
+
+        public Trial(double[] point, String options, double score, long cost)
+        {
+            this.point = point;
+            this.options = options;
+            this.score = score;
+            this.cost = cost;
+        }
+
+        public double[] getPoint()
+        {
+            return point;
+        }
+
+        public String getOptions()
+        {
+            return options;
+        }
+
+        public double getScore()
+        {
+            return score;
+        }
+
+        public long getCost()
+        {
+            return cost;
+        }
+    }
+}
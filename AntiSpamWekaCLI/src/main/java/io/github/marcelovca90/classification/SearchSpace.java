@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.classification;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SearchSpace
+{
+    // e.g. "-C [0.1..100 log]", "-M [1..10]" or "-K [0|1|2]"
+    private static final Pattern PARAMETER = Pattern.compile("\\[([^\\[\\]]+)\\]");
+    private static final Pattern RANGE = Pattern.compile("\\s*(\\S+)\\s*\\.\\.\\s*(\\S+?)\\s*(log|lin)?\\s*");
+
+    private final String options;
+    private final List<Parameter> parameters;
+
+    public SearchSpace(String options)
+    {
+        this.options = options;
+        this.parameters = new ArrayList<>();
+
+        Matcher matcher = PARAMETER.matcher(options);
+        while (matcher.find())
+            parameters.add(Parameter.parse(matcher.group(1)));
+    }
+
+    public static boolean isSearchable(String options)
+    {
+        return options != null && PARAMETER.matcher(options).find();
+    }
+
+    public int dimensions()
+    {
+        return parameters.size();
+    }
+
+    public String instantiate(double[] point)
+    {
+        // every parameter is addressed by a coordinate in [0, 1]
+        StringBuffer buffer = new StringBuffer();
+        Matcher matcher = PARAMETER.matcher(options);
+        for (int i = 0; matcher.find(); i++)
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(parameters.get(i).valueAt(point[i])));
+        matcher.appendTail(buffer);
+
+        return buffer.toString();
+    }
+
+    public String getDefault()
+    {
+        double[] center = new double[dimensions()];
+        Arrays.fill(center, 0.5);
+        return instantiate(center);
+    }
+
+    private static class Parameter
+    {
+        private final List<String> values;
+        private final double lower;
+        private final double upper;
+        private final boolean logarithmic;
+        private final boolean integer;
+
+        private Parameter(List<String> values, double lower, double upper, boolean logarithmic, boolean integer)
+        {
+            this.values = values;
+            this.lower = lower;
+            this.upper = upper;
+            this.logarithmic = logarithmic;
+            this.integer = integer;
+        }
+
+        private static Parameter parse(String definition)
+        {
+            Matcher range = RANGE.matcher(definition);
+            if (range.matches())
+            {
+                boolean integer = !range.group(1).contains(".") && !range.group(2).contains(".");
+                boolean logarithmic = "log".equals(range.group(3));
+                return new Parameter(null, Double.parseDouble(range.group(1)), Double.parseDouble(range.group(2)), logarithmic, integer);
+            }
+            else
+            {
+                return new Parameter(Arrays.asList(definition.trim().split("\\s*\\|\\s*")), 0, 0, false, false);
+            }
+        }
+
+        private String valueAt(double u)
+        {
+            if (values != null)
+                return values.get(Math.min((int) (u * values.size()), values.size() - 1));
+
+            double value = logarithmic
+                ? Math.exp(Math.log(lower) + u * (Math.log(upper) - Math.log(lower)))
+                : lower + u * (upper - lower);
+
+            // six significant digits are plenty for a search and keep the options readable
+            return integer ? String.valueOf(Math.round(value)) : new BigDecimal(value).round(new MathContext(6)).stripTrailingZeros().toPlainString();
+        }
+    }
+}
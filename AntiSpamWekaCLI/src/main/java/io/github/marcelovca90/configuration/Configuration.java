@@ -21,23 +21,61 @@
  ******************************************************************************/
 package io.github.marcelovca90.configuration;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
-public class Configuration
+public class Configuration implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     // anti spam settings
     private String metadataPath;
     private List<Triple<String, String, String>> classNamesOptionsAndLogNames;
+    private Map<Triple<String, String, String>, Pair<Long, Long>> cellLimits;
     private int runs;
 
     // run settings
     private boolean tsneAnalysis;
     private boolean loadArff;
+    private boolean useSnapshot;
+    private boolean memoryMapRawFiles;
+    private double sparseDensityThreshold;
+    private int prefetchDatasets;
+    private long prefetchMemoryBudget;
+    private boolean streamUpdateable;
+    private int streamChunkSize;
+    private int evaluationBins;
+    private int testParallelism;
     private boolean shrinkFeatures;
     private boolean balanceClasses;
+    private boolean persistSplitPlans;
+    private boolean forkCells;
+    private int parallelRuns;
+    private boolean adaptiveRuns;
+    private int minRuns;
+    private int maxRuns;
+    private String targetMetric;
+    private double targetHalfWidth;
+    private boolean racing;
+    private double racingInitialFraction;
+    private int racingInitialRuns;
+    private double racingEta;
+    private int racingFinalists;
+    private double racingAlpha;
+    private String costHistory;
+    private String journal;
+    private int searchTrials;
+    private String searchStrategy;
+    private int searchParallelism;
+    private int searchValidationFolds;
+    private String searchLog;
     private boolean includeEmpty;
+    private boolean compileModels;
+    private boolean measureFootprint;
     private boolean saveModel;
     private boolean saveArff;
 
@@ -61,6 +99,16 @@ public class Configuration
         this.classNamesOptionsAndLogNames = classNamesOptionsAndLogNames;
     }
 
+    public Map<Triple<String, String, String>, Pair<Long, Long>> getCellLimits()
+    {
+        return cellLimits;
+    }
+
+    public void setCellLimits(Map<Triple<String, String, String>, Pair<Long, Long>> cellLimits)
+    {
+        this.cellLimits = cellLimits;
+    }
+
     public int getRuns()
     {
         return runs;
@@ -91,6 +139,96 @@ public class Configuration
         this.loadArff = loadArff;
     }
 
+    public boolean shouldUseSnapshot()
+    {
+        return useSnapshot;
+    }
+
+    public void setUseSnapshot(boolean useSnapshot)
+    {
+        this.useSnapshot = useSnapshot;
+    }
+
+    public boolean shouldMemoryMapRawFiles()
+    {
+        return memoryMapRawFiles;
+    }
+
+    public void setMemoryMapRawFiles(boolean memoryMapRawFiles)
+    {
+        this.memoryMapRawFiles = memoryMapRawFiles;
+    }
+
+    public double getSparseDensityThreshold()
+    {
+        return sparseDensityThreshold;
+    }
+
+    public void setSparseDensityThreshold(double sparseDensityThreshold)
+    {
+        this.sparseDensityThreshold = sparseDensityThreshold;
+    }
+
+    public int getPrefetchDatasets()
+    {
+        return prefetchDatasets;
+    }
+
+    public void setPrefetchDatasets(int prefetchDatasets)
+    {
+        this.prefetchDatasets = prefetchDatasets;
+    }
+
+    public long getPrefetchMemoryBudget()
+    {
+        return prefetchMemoryBudget;
+    }
+
+    public void setPrefetchMemoryBudget(long prefetchMemoryBudget)
+    {
+        this.prefetchMemoryBudget = prefetchMemoryBudget;
+    }
+
+    public boolean shouldStreamUpdateable()
+    {
+        return streamUpdateable;
+    }
+
+    public void setStreamUpdateable(boolean streamUpdateable)
+    {
+        this.streamUpdateable = streamUpdateable;
+    }
+
+    public int getStreamChunkSize()
+    {
+        return streamChunkSize;
+    }
+
+    public void setStreamChunkSize(int streamChunkSize)
+    {
+        this.streamChunkSize = streamChunkSize;
+    }
+
+    public int getEvaluationBins()
+    {
+        return evaluationBins;
+    }
+
+    public void setEvaluationBins(int evaluationBins)
+    {
+        this.evaluationBins = evaluationBins;
+    }
+
+    public int getTestParallelism()
+    {
+        return testParallelism;
+    }
+
+    public void setTestParallelism(int testParallelism)
+    {
+        this.testParallelism = testParallelism;
+    }
+
     public boolean shouldShrinkFeatures()
     {
         return shrinkFeatures;
@@ -111,6 +249,216 @@ public class Configuration
         this.balanceClasses = balanceClasses;
     }
 
+    public boolean shouldPersistSplitPlans()
+    {
+        return persistSplitPlans;
+    }
+
+    public void setPersistSplitPlans(boolean persistSplitPlans)
+    {
+        this.persistSplitPlans = persistSplitPlans;
+    }
+
+    public boolean shouldForkCells()
+    {
+        return forkCells;
+    }
+
+    public void setForkCells(boolean forkCells)
+    {
+        this.forkCells = forkCells;
+    }
+
+    public int getParallelRuns()
+    {
+        return parallelRuns;
+    }
+
+    public void setParallelRuns(int parallelRuns)
+    {
+        this.parallelRuns = parallelRuns;
+    }
+
+    public boolean isAdaptiveRuns()
+    {
+        return adaptiveRuns;
+    }
+
+    public void setAdaptiveRuns(boolean adaptiveRuns)
+    {
+        this.adaptiveRuns = adaptiveRuns;
+    }
+
+    public int getMinRuns()
+    {
+        return minRuns;
+    }
+
+    public void setMinRuns(int minRuns)
+    {
+        this.minRuns = minRuns;
+    }
+
+    public int getMaxRuns()
+    {
+        return maxRuns;
+    }
+
+    public void setMaxRuns(int maxRuns)
+    {
+        this.maxRuns = maxRuns;
+    }
+
+    public String getTargetMetric()
+    {
+        return targetMetric;
+    }
+
+    public void setTargetMetric(String targetMetric)
+    {
+        this.targetMetric = targetMetric;
+    }
+
+    public double getTargetHalfWidth()
+    {
+        return targetHalfWidth;
+    }
+
+    public void setTargetHalfWidth(double targetHalfWidth)
+    {
+        this.targetHalfWidth = targetHalfWidth;
+    }
+
+    public boolean isRacing()
+    {
+        return racing;
+    }
+
+    public void setRacing(boolean racing)
+    {
+        this.racing = racing;
+    }
+
+    public double getRacingInitialFraction()
+    {
+        return racingInitialFraction;
+    }
+
+    public void setRacingInitialFraction(double racingInitialFraction)
+    {
+        this.racingInitialFraction = racingInitialFraction;
+    }
+
+    public int getRacingInitialRuns()
+    {
+        return racingInitialRuns;
+    }
+
+    public void setRacingInitialRuns(int racingInitialRuns)
+    {
+        this.racingInitialRuns = racingInitialRuns;
+    }
+
+    public double getRacingEta()
+    {
+        return racingEta;
+    }
+
+    public void setRacingEta(double racingEta)
+    {
+        this.racingEta = racingEta;
+    }
+
+    public int getRacingFinalists()
+    {
+        return racingFinalists;
+    }
+
+    public void setRacingFinalists(int racingFinalists)
+    {
+        this.racingFinalists = racingFinalists;
+    }
+
+    public double getRacingAlpha()
+    {
+        return racingAlpha;
+    }
+
+    public void setRacingAlpha(double racingAlpha)
+    {
+        this.racingAlpha = racingAlpha;
+    }
+
+    public String getCostHistory()
+    {
+        return costHistory;
+    }
+
+    public void setCostHistory(String costHistory)
+    {
+        this.costHistory = costHistory;
+    }
+
+    public String getJournal()
+    {
+        return journal;
+    }
+
+    public void setJournal(String journal)
+    {
+        this.journal = journal;
+    }
+
+    public int getSearchTrials()
+    {
+        return searchTrials;
+    }
+
+    public void setSearchTrials(int searchTrials)
+    {
+        this.searchTrials = searchTrials;
+    }
+
+    public String getSearchStrategy()
+    {
+        return searchStrategy;
+    }
+
+    public void setSearchStrategy(String searchStrategy)
+    {
+        this.searchStrategy = searchStrategy;
+    }
+
+    public int getSearchParallelism()
+    {
+        return searchParallelism;
+    }
+
+    public void setSearchParallelism(int searchParallelism)
+    {
+        this.searchParallelism = searchParallelism;
+    }
+
+    public int getSearchValidationFolds()
+    {
+        return searchValidationFolds;
+    }
+
+    public void setSearchValidationFolds(int searchValidationFolds)
+    {
+        this.searchValidationFolds = searchValidationFolds;
+    }
+
+    public String getSearchLog()
+    {
+        return searchLog;
+    }
+
+    public void setSearchLog(String searchLog)
+    {
+        this.searchLog = searchLog;
+    }
+
     public boolean shouldIncludeEmpty()
     {
         return includeEmpty;
@@ -121,6 +469,26 @@ public class Configuration
         this.includeEmpty = includeEmpty;
     }
 
+    public boolean shouldCompileModels()
+    {
+        return compileModels;
+    }
+
+    public void setCompileModels(boolean compileModels)
+    {
+        this.compileModels = compileModels;
+    }
+
+    public boolean shouldMeasureFootprint()
+    {
+        return measureFootprint;
+    }
+
+    public void setMeasureFootprint(boolean measureFootprint)
+    {
+        this.measureFootprint = measureFootprint;
+    }
+
     public boolean shouldSaveModel()
     {
         return saveModel;
@@ -24,11 +24,17 @@ package io.github.marcelovca90.configuration;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,29 +49,75 @@ public class ConfigurationLoader
     }
 
     protected Configuration load(String filename)
+    {
+        try (FileInputStream inputStream = new FileInputStream(new File(filename)))
+        {
+            return load(inputStream);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not read configuration file.", e);
+            return null;
+        }
+    }
+
+    public Configuration load(InputStream inputStream)
     {
         Configuration config = new Configuration();
         Properties prop = new Properties();
 
-        try (FileInputStream inputStream = new FileInputStream(new File(filename)))
+        try
         {
             prop.load(inputStream);
 
             // anti spam settings
             config.setMetadataPath(prop.getProperty("metadata"));
             config.setRuns(Integer.parseInt(prop.getProperty("runs")));
+            config.setParallelRuns(Integer.parseInt(prop.getProperty("parallelRuns", "1")));
+            config.setAdaptiveRuns(Boolean.parseBoolean(prop.getProperty("adaptiveRuns")));
+            config.setMinRuns(Integer.parseInt(prop.getProperty("minRuns", "3")));
+            config.setMaxRuns(Integer.parseInt(prop.getProperty("maxRuns", prop.getProperty("runs"))));
+            config.setTargetMetric(prop.getProperty("targetMetric", "weightedFMeasure"));
+            config.setTargetHalfWidth(Double.parseDouble(prop.getProperty("targetHalfWidth", "0.5")));
+            config.setRacing(Boolean.parseBoolean(prop.getProperty("racing")));
+            config.setRacingInitialFraction(Double.parseDouble(prop.getProperty("racingInitialFraction", "0.1")));
+            config.setRacingInitialRuns(Integer.parseInt(prop.getProperty("racingInitialRuns", "3")));
+            config.setRacingEta(Double.parseDouble(prop.getProperty("racingEta", "2.0")));
+            config.setRacingFinalists(Integer.parseInt(prop.getProperty("racingFinalists", "3")));
+            config.setRacingAlpha(Double.parseDouble(prop.getProperty("racingAlpha", "0.05")));
+            config.setCostHistory(prop.getProperty("costHistory", ""));
+            config.setJournal(prop.getProperty("journal", ""));
+            config.setSearchTrials(Integer.parseInt(prop.getProperty("searchTrials", "0")));
+            config.setSearchStrategy(prop.getProperty("searchStrategy", "random"));
+            config.setSearchParallelism(Integer.parseInt(prop.getProperty("searchParallelism", "1")));
+            config.setSearchValidationFolds(Integer.parseInt(prop.getProperty("searchValidationFolds", "4")));
+            config.setSearchLog(prop.getProperty("searchLog", ""));
 
             // run settings
             config.setTsneAnalysis(Boolean.parseBoolean(prop.getProperty("tsneAnalysis")));
             config.setLoadArff(Boolean.parseBoolean(prop.getProperty("loadArff")));
+            config.setUseSnapshot(Boolean.parseBoolean(prop.getProperty("useSnapshot")));
+            config.setMemoryMapRawFiles(Boolean.parseBoolean(prop.getProperty("memoryMapRawFiles")));
+            config.setSparseDensityThreshold(Double.parseDouble(prop.getProperty("sparseDensityThreshold", "0.0")));
+            config.setPrefetchDatasets(Integer.parseInt(prop.getProperty("prefetchDatasets", "0")));
+            config.setPrefetchMemoryBudget(Long.parseLong(prop.getProperty("prefetchMemoryBudget", "0")) * FileUtils.ONE_MB);
+            config.setStreamUpdateable(Boolean.parseBoolean(prop.getProperty("streamUpdateable")));
+            config.setStreamChunkSize(Integer.parseInt(prop.getProperty("streamChunkSize", "10000")));
+            config.setEvaluationBins(Integer.parseInt(prop.getProperty("evaluationBins", "0")));
+            config.setTestParallelism(Integer.parseInt(prop.getProperty("testParallelism", "1")));
             config.setShrinkFeatures(Boolean.parseBoolean(prop.getProperty("shrinkFeatures")));
             config.setBalanceClasses(Boolean.parseBoolean(prop.getProperty("balanceClasses")));
+            config.setPersistSplitPlans(Boolean.parseBoolean(prop.getProperty("persistSplitPlans")));
+            config.setForkCells(Boolean.parseBoolean(prop.getProperty("forkCells")));
             config.setIncludeEmpty(Boolean.parseBoolean(prop.getProperty("includeEmpty")));
+            config.setCompileModels(Boolean.parseBoolean(prop.getProperty("compileModels")));
+            config.setMeasureFootprint(Boolean.parseBoolean(prop.getProperty("measureFootprint")));
             config.setSaveModel(Boolean.parseBoolean(prop.getProperty("saveModel")));
             config.setSaveArff(Boolean.parseBoolean(prop.getProperty("saveArff")));
 
             // methods and options
             config.setClassNamesOptionsAndLogFilenames(loadClassNamesOptionsAndLogNames(prop));
+            config.setCellLimits(loadCellLimits(prop, config.getClassNamesOptionsAndLogNames()));
         }
         catch (IOException e)
         {
@@ -101,4 +153,23 @@ public class ConfigurationLoader
 
         return classNamesOptionsAndLogNames;
     }
+
+    private Map<Triple<String, String, String>, Pair<Long, Long>> loadCellLimits(Properties prop, List<Triple<String, String, String>> classNamesOptionsAndLogNames)
+    {
+        Map<Triple<String, String, String>, Pair<Long, Long>> cellLimits = new HashMap<>();
+
+        // wall-clock limit in minutes and heap budget (growth of the heap retained after garbage collection) in megabytes; zero disables them, and each method may override both
+        String defaultTimeout = prop.getProperty("cellTimeout", "0");
+        String defaultHeapBudget = prop.getProperty("cellHeapBudget", "0");
+
+        for (int i = 1; i <= classNamesOptionsAndLogNames.size(); i++)
+        {
+            long timeout = Long.parseLong(prop.getProperty("cellTimeout" + i, defaultTimeout).replaceAll("^\"|\"$", ""));
+            long heapBudget = Long.parseLong(prop.getProperty("cellHeapBudget" + i, defaultHeapBudget).replaceAll("^\"|\"$", ""));
+
+            cellLimits.put(classNamesOptionsAndLogNames.get(i - 1), Pair.of(TimeUnit.MINUTES.toMillis(timeout), heapBudget * FileUtils.ONE_MB));
+        }
+
+        return cellLimits;
+    }
 }
@@ -21,26 +21,54 @@
  ******************************************************************************/
 package io.github.marcelovca90.data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -57,6 +85,7 @@ import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.OptionHandler;
+import weka.core.SparseInstance;
 import weka.core.Utils;
 import weka.core.converters.ArffLoader.ArffReader;
 import weka.core.converters.ArffSaver;
@@ -68,6 +97,41 @@ public class DatasetHelper
     private static final Logger LOGGER = LogManager.getLogger(DatasetHelper.class);
     private static final int SIZE_INT = SizeOf.intSize();
     private static final int SIZE_DOUBLE = SizeOf.doubleSize();
+    private static final long MAX_MAPPED_REGION_SIZE = Integer.MAX_VALUE;
+    private static final int SNAPSHOT_MAGIC = 0x41535753;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long NO_CHECKSUM = -1L;
+    private static final long INSTANCE_OVERHEAD = 64L;
+    private static final int SPLIT_PLAN_MAGIC = 0x41535350;
+    private static final int SPLIT_PLAN_VERSION = 1;
+    private static final Map<String, String> COMPRESSION_CODECS = new LinkedHashMap<>();
+
+    static
+    {
+        COMPRESSION_CODECS.put("gz", CompressorStreamFactory.GZIP);
+        COMPRESSION_CODECS.put("xz", CompressorStreamFactory.XZ);
+        COMPRESSION_CODECS.put("zst", CompressorStreamFactory.ZSTANDARD);
+    }
+
+    private boolean memoryMapRawFiles = true;
+    private double sparseDensityThreshold = 0.0;
+    private boolean useSnapshot = false;
+    private final Map<String, Long> contentChecksums = new ConcurrentHashMap<>();
+
+    public void setMemoryMapRawFiles(boolean memoryMapRawFiles)
+    {
+        this.memoryMapRawFiles = memoryMapRawFiles;
+    }
+
+    public void setSparseDensityThreshold(double sparseDensityThreshold)
+    {
+        this.sparseDensityThreshold = sparseDensityThreshold;
+    }
+
+    public void setUseSnapshot(boolean useSnapshot)
+    {
+        this.useSnapshot = useSnapshot;
+    }
 
     public Set<DatasetMetadata> loadMetadata(String filename)
     {
@@ -101,15 +165,30 @@ public class DatasetHelper
     {
         Instances dataset = null;
         String arffFilename = metadata.getArffFilename();
+        long checksum = useSnapshot ? computeSourceChecksum(metadata) : NO_CHECKSUM;
 
-        if (lookForArff)
+        if (checksum != NO_CHECKSUM)
+        {
+            // the snapshot is only trusted while it matches the raw files it was built from
+            dataset = loadSnapshot(metadata, checksum);
+            if (dataset == null)
+            {
+                dataset = loadRawDatasets(metadata);
+                if (dataset != null)
+                    saveSnapshot(metadata, dataset, checksum);
+            }
+        }
+        else if (lookForArff)
         {
             ArffReader arffReader = null;
-            try (FileReader fileReader = new FileReader(new File(arffFilename)))
+            try (Reader fileReader = openArffReader(arffFilename))
             {
                 arffReader = new ArffReader(fileReader);
                 dataset = arffReader.getData();
                 dataset.setClassIndex(dataset.numAttributes() - 1);
+                if (sparseDensityThreshold > 0.0)
+                    for (int i = 0; i < dataset.size(); i++)
+                        dataset.set(i, compact(dataset.get(i)));
             }
             catch (FileNotFoundException e)
             {
@@ -124,20 +203,162 @@ public class DatasetHelper
         }
         else
         {
-            Instances ham = loadRawDataset(metadata.getFolder() + File.separator + "ham", ClassType.HAM);
-            Instances spam = loadRawDataset(metadata.getFolder() + File.separator + "spam", ClassType.SPAM);
-            dataset = merge(ham, spam);
+            dataset = loadRawDatasets(metadata);
         }
 
         if (dataset != null)
         {
             metadata.setNumClasses(dataset.numClasses());
             metadata.setNumInstances(dataset.numInstances());
+
+            if (sparseDensityThreshold > 0.0)
+                reportSparseSavings(metadata, dataset);
         }
 
         return dataset;
     }
 
+    public long estimateDatasetSize(DatasetMetadata metadata)
+    {
+        long estimatedSize = 0;
+
+        for (ClassType classType : ClassType.values())
+        {
+            // the header holds the amount of instances and attributes, even for compressed files
+            File file = resolveSource(metadata.getFolder() + File.separator + classType.name().toLowerCase());
+            try (DataInputStream inputStream = new DataInputStream(openSource(file)))
+            {
+                long numberOfInstances = inputStream.readInt();
+                long numberOfAttributes = inputStream.readInt();
+
+                // each value takes a double on the heap, plus a fixed cost per instance object and its array
+                estimatedSize += numberOfInstances * ((numberOfAttributes + 1) * SIZE_DOUBLE + INSTANCE_OVERHEAD);
+            }
+            catch (IOException e)
+            {
+                return resolveSource(metadata.getArffFilename()).length();
+            }
+        }
+
+        return estimatedSize;
+    }
+
+    public InstanceStream openInstanceStream(DatasetMetadata metadata, boolean lookForArff, int chunkSize, long seed) throws IOException
+    {
+        Instances structure = null;
+        List<InstanceStream.InstanceReader> readers = new ArrayList<>();
+
+        try
+        {
+            if (lookForArff && resolveSource(metadata.getArffFilename()).isFile())
+            {
+                // read only the header, so that instances can be read one by one afterwards
+                Reader reader = openArffReader(metadata.getArffFilename());
+                try
+                {
+                    ArffReader arffReader = new ArffReader(reader, 1);
+                    structure = arffReader.getStructure();
+                    structure.setClassIndex(structure.numAttributes() - 1);
+                    readers.add(new InstanceStream.ArffInstanceReader(reader, arffReader, structure));
+                }
+                catch (IOException e)
+                {
+                    reader.close();
+                    throw e;
+                }
+            }
+            else
+            {
+                long numberOfInstances = 0;
+                for (ClassType classType : ClassType.values())
+                {
+                    File file = resolveSource(metadata.getFolder() + File.separator + classType.name().toLowerCase());
+                    DataInputStream inputStream = new DataInputStream(new BufferedInputStream(openSource(file)));
+                    try
+                    {
+                        int classInstances = inputStream.readInt();
+                        int numberOfAttributes = inputStream.readInt();
+                        if (numberOfAttributes <= 0)
+                            throw new IOException("Invalid number of attributes (" + numberOfAttributes + ").");
+
+                        if (structure == null)
+                        {
+                            structure = new Instances("dataSet", createAttributes(numberOfAttributes), 0);
+                            structure.setClassIndex(numberOfAttributes);
+                        }
+                        else if (structure.numAttributes() != numberOfAttributes + 1)
+                        {
+                            throw new IOException("Number of attributes of " + file.getPath() + " does not match the other files.");
+                        }
+
+                        readers.add(new InstanceStream.RawInstanceReader(inputStream, classInstances, numberOfAttributes, classType));
+                        numberOfInstances += classInstances;
+                    }
+                    catch (IOException e)
+                    {
+                        inputStream.close();
+                        throw e;
+                    }
+                }
+                metadata.setNumInstances((int) numberOfInstances);
+            }
+        }
+        catch (IOException e)
+        {
+            readers.forEach(IOUtils::closeQuietly);
+            throw e;
+        }
+
+        metadata.setNumClasses(structure.numClasses());
+
+        return new InstanceStream(structure, readers, chunkSize, seed);
+    }
+
+    public InstanceStream openInstanceStream(String filename, int chunkSize) throws IOException
+    {
+        // a single ham/spam-format or ARFF file, read in its original order
+        File file = resolveSource(filename);
+        String name = getCompressionCodec(file) != null ? FilenameUtils.removeExtension(file.getName()) : file.getName();
+
+        if ("arff".equalsIgnoreCase(FilenameUtils.getExtension(name)))
+        {
+            Reader reader = openArffReader(filename);
+            try
+            {
+                ArffReader arffReader = new ArffReader(reader, 1);
+                Instances structure = arffReader.getStructure();
+                structure.setClassIndex(structure.numAttributes() - 1);
+                return new InstanceStream(structure, Collections.singletonList(new InstanceStream.ArffInstanceReader(reader, arffReader, structure)), chunkSize);
+            }
+            catch (IOException e)
+            {
+                reader.close();
+                throw e;
+            }
+        }
+        else
+        {
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(openSource(file)));
+            try
+            {
+                int numberOfInstances = inputStream.readInt();
+                int numberOfAttributes = inputStream.readInt();
+                if (numberOfAttributes <= 0)
+                    throw new IOException("Invalid number of attributes (" + numberOfAttributes + ").");
+
+                // files named after a class keep it as the actual class, any other file is unlabelled
+                ClassType classType = Arrays.stream(ClassType.values()).filter(c -> c.name().equalsIgnoreCase(name)).findFirst().orElse(null);
+                Instances structure = createStructure(numberOfAttributes);
+                return new InstanceStream(structure, Collections.singletonList(new InstanceStream.RawInstanceReader(inputStream, numberOfInstances, numberOfAttributes, classType)), chunkSize);
+            }
+            catch (IOException e)
+            {
+                inputStream.close();
+                throw e;
+            }
+        }
+    }
+
     public void addEmptyInstances(Instances dataset, DatasetMetadata metadata)
     {
         dataset.addAll(createEmptyInstances(metadata.getNumFeaturesAfterReduction(), metadata.getNumEmptyHams(), ClassType.HAM));
@@ -159,6 +380,51 @@ public class DatasetHelper
                 dataset.add(dataset.get(hamCount + random.nextInt(spamCount)));
     }
 
+    public void balance(DatasetView view, int seed)
+    {
+        Random random = new Random(seed);
+
+        int hamCount = 0;
+        int spamCount = 0;
+        for (int i = 0; i < view.size(); i++)
+            if (view.get(i).classValue() == ClassType.HAM.ordinal())
+                hamCount++;
+            else
+                spamCount++;
+
+        if (hamCount < spamCount)
+            for (int i = 0; i < spamCount - hamCount; i++)
+                view.add(view.index(random.nextInt(hamCount)));
+        else
+            for (int i = 0; i < hamCount - spamCount; i++)
+                view.add(view.index(hamCount + random.nextInt(spamCount)));
+    }
+
+    public Instances subsample(Instances dataset, double fraction, int seed)
+    {
+        Random random = new Random(seed);
+
+        // draw the same fraction of each class, keeping the instances in their original order
+        List<Integer> selected = new ArrayList<>();
+        for (ClassType classType : ClassType.values())
+        {
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < dataset.size(); i++)
+                if (dataset.get(i).classValue() == classType.ordinal())
+                    indices.add(i);
+
+            Collections.shuffle(indices, random);
+            selected.addAll(indices.subList(0, (int) Math.ceil(fraction * indices.size())));
+        }
+        Collections.sort(selected);
+
+        Instances sample = new Instances(dataset, selected.size());
+        for (int index : selected)
+            sample.add(dataset.get(index));
+
+        return sample;
+    }
+
     public Instances selectAttributes(Instances dataset)
     {
         int noCores = Runtime.getRuntime().availableProcessors();
@@ -205,6 +471,118 @@ public class DatasetHelper
         }
     }
 
+    public void shuffle(DatasetView view, int seed)
+    {
+        Random random = new Random(seed);
+
+        int numberOfInstances = view.size();
+        for (int i = 0; i < numberOfInstances; i++)
+        {
+            int j = random.nextInt(numberOfInstances);
+            int a = view.index(i);
+            int b = view.index(j);
+            view.set(i, b);
+            view.set(j, a);
+        }
+    }
+
+    public Pair<Instances, Instances> split(DatasetView view, double splitPercent)
+    {
+        int numberOfInstances = view.size();
+        int splitIndex = (int) (splitPercent * numberOfInstances);
+
+        Instances trainSet = view.materialize("trainSet", 0, splitIndex);
+        Instances testSet = view.materialize("testSet", splitIndex, numberOfInstances);
+
+        return Pair.of(trainSet, testSet);
+    }
+
+    public Pair<Instances, Instances> split(Instances dataset, SplitPlan plan)
+    {
+        Instances trainSet = new Instances(dataset, plan.getTrainIndices().length);
+        trainSet.setRelationName("trainSet");
+        for (int index : plan.getTrainIndices())
+            trainSet.add(dataset.get(index));
+
+        Instances testSet = new Instances(dataset, plan.getTestIndices().length);
+        testSet.setRelationName("testSet");
+        for (int index : plan.getTestIndices())
+            testSet.add(dataset.get(index));
+
+        return Pair.of(trainSet, testSet);
+    }
+
+    public SplitPlan loadSplitPlan(DatasetMetadata metadata, int seed, double splitPercent, boolean balanced, int numInstances)
+    {
+        SplitPlan plan = null;
+        File file = getSplitPlanFile(metadata, seed, splitPercent, balanced);
+
+        if (!file.exists())
+            return null;
+
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (inputStream.readInt() != SPLIT_PLAN_MAGIC || inputStream.readInt() != SPLIT_PLAN_VERSION)
+                throw new IOException("File is not a split plan of the current version.");
+
+            // a plan is only valid for the very same rows it was computed from, which cannot be told without the raw files
+            long checksum = computeSourceChecksum(metadata);
+            if (checksum == NO_CHECKSUM || inputStream.readLong() != checksum || inputStream.readInt() != numInstances
+                || inputStream.readInt() != seed || inputStream.readDouble() != splitPercent || inputStream.readBoolean() != balanced)
+            {
+                LOGGER.info("Split plan {} is stale and will be recomputed.", file.getPath());
+                return null;
+            }
+
+            int[] trainIndices = new int[inputStream.readInt()];
+            for (int i = 0; i < trainIndices.length; i++)
+                trainIndices[i] = inputStream.readInt();
+
+            int[] testIndices = new int[inputStream.readInt()];
+            for (int i = 0; i < testIndices.length; i++)
+                testIndices[i] = inputStream.readInt();
+
+            plan = new SplitPlan(seed, splitPercent, balanced, numInstances, trainIndices, testIndices);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not read split plan file " + file.getPath() + ".", e);
+        }
+
+        return plan;
+    }
+
+    public void saveSplitPlan(DatasetMetadata metadata, SplitPlan plan)
+    {
+        File file = getSplitPlanFile(metadata, plan.getSeed(), plan.getSplitPercent(), plan.isBalanced());
+        long checksum = computeSourceChecksum(metadata);
+        if (checksum == NO_CHECKSUM)
+            return;
+
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(FileUtils.openOutputStream(file))))
+        {
+            outputStream.writeInt(SPLIT_PLAN_MAGIC);
+            outputStream.writeInt(SPLIT_PLAN_VERSION);
+            outputStream.writeLong(checksum);
+            outputStream.writeInt(plan.getNumInstances());
+            outputStream.writeInt(plan.getSeed());
+            outputStream.writeDouble(plan.getSplitPercent());
+            outputStream.writeBoolean(plan.isBalanced());
+
+            outputStream.writeInt(plan.getTrainIndices().length);
+            for (int index : plan.getTrainIndices())
+                outputStream.writeInt(index);
+
+            outputStream.writeInt(plan.getTestIndices().length);
+            for (int index : plan.getTestIndices())
+                outputStream.writeInt(index);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Unable to save split plan file " + file.getPath() + ".", e);
+        }
+    }
+
     public Pair<Instances, Instances> split(Instances dataset, double splitPercent)
     {
         int numberOfAttributes = dataset.numAttributes();
@@ -259,6 +637,15 @@ public class DatasetHelper
         }
     }
 
+    public Instances createStructure(int featureAmount)
+    {
+        // empty dataset with the same attributes as the raw binary format, e.g. to score vectors in that layout
+        Instances structure = new Instances("dataSet", createAttributes(featureAmount), 0);
+        structure.setClassIndex(featureAmount);
+
+        return structure;
+    }
+
     private ArrayList<Attribute> createAttributes(long featureAmount)
     {
         ArrayList<Attribute> attributes = new ArrayList<>();
@@ -283,13 +670,197 @@ public class DatasetHelper
             for (int j = 0; j < featureAmount; j++)
                 emptyInstance.setValue(j, 0.0);
             emptyInstance.setClassValue(type.name());
-            emptyDataset.add(emptyInstance);
+            emptyDataset.add(compact(emptyInstance));
         }
 
         return emptyDataset;
     }
 
+    private Instances loadRawDatasets(DatasetMetadata metadata)
+    {
+        // read spam in the background while ham is read in the current thread
+        CompletableFuture<Instances> spam = CompletableFuture.supplyAsync(() -> loadRawDataset(metadata.getFolder() + File.separator + "spam", ClassType.SPAM));
+        Instances ham = loadRawDataset(metadata.getFolder() + File.separator + "ham", ClassType.HAM);
+        return merge(ham, spam.join());
+    }
+
     private Instances loadRawDataset(String filename, ClassType classType)
+    {
+        File file = resolveSource(filename);
+
+        if (getCompressionCodec(file) != null)
+            return loadCompressedRawDataset(file, classType);
+        else
+            return memoryMapRawFiles ? loadMappedRawDataset(filename, classType) : loadStreamedRawDataset(filename, classType);
+    }
+
+    private Instances loadCompressedRawDataset(File file, ClassType classType)
+    {
+        Instances dataset = null;
+        long startTime = System.nanoTime();
+
+        try (CountingInputStream countingStream = new CountingInputStream(new FileInputStream(file));
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(decompress(file, countingStream))))
+        {
+            int numberOfInstances = inputStream.readInt();
+            int numberOfAttributes = inputStream.readInt();
+            if (numberOfAttributes <= 0)
+                throw new IOException("Invalid number of attributes (" + numberOfAttributes + ").");
+
+            // create attributes
+            ArrayList<Attribute> attributes = createAttributes(numberOfAttributes);
+
+            // create data set
+            dataset = new Instances("dataSet", attributes, numberOfInstances);
+            dataset.setClassIndex(numberOfAttributes);
+
+            // decode one row at a time straight from the decompressed stream
+            byte[] rowBytes = new byte[numberOfAttributes * SIZE_DOUBLE];
+            DoubleBuffer rowBuffer = ByteBuffer.wrap(rowBytes).asDoubleBuffer();
+            long decodedBytes = 2 * SIZE_INT;
+
+            while (IOUtils.read(inputStream, rowBytes) == rowBytes.length)
+            {
+                double[] values = new double[numberOfAttributes + 1];
+                rowBuffer.rewind();
+                rowBuffer.get(values, 0, numberOfAttributes);
+                values[numberOfAttributes] = classType.ordinal();
+                dataset.add(compact(new DenseInstance(1.0, values)));
+                decodedBytes += rowBytes.length;
+            }
+
+            double elapsedSeconds = Math.max(1, System.nanoTime() - startTime) / 1e9;
+            LOGGER.info(
+                "Decoded {} with {} at {} MB/s ({} compressed, {} decompressed).",
+                file.getName(),
+                getCompressionCodec(file),
+                String.format("%.2f", decodedBytes / elapsedSeconds / FileUtils.ONE_MB),
+                FileUtils.byteCountToDisplaySize(countingStream.getByteCount()),
+                FileUtils.byteCountToDisplaySize(decodedBytes));
+        }
+        catch (FileNotFoundException e)
+        {
+            LOGGER.error("Could not find file " + file.getPath() + ".", e);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not read file " + file.getPath() + ".", e);
+        }
+
+        return dataset;
+    }
+
+    private File resolveSource(String filename)
+    {
+        File file = new File(filename);
+
+        if (!file.exists())
+        {
+            for (String extension : COMPRESSION_CODECS.keySet())
+            {
+                File compressedFile = new File(filename + "." + extension);
+                if (compressedFile.exists())
+                    return compressedFile;
+            }
+        }
+
+        return file;
+    }
+
+    private String getCompressionCodec(File file)
+    {
+        return COMPRESSION_CODECS.get(FilenameUtils.getExtension(file.getName()).toLowerCase());
+    }
+
+    private InputStream openSource(File file) throws IOException
+    {
+        return decompress(file, new FileInputStream(file));
+    }
+
+    private InputStream decompress(File file, InputStream inputStream) throws IOException
+    {
+        String codec = getCompressionCodec(file);
+        if (codec == null)
+            return inputStream;
+
+        try
+        {
+            return new CompressorStreamFactory().createCompressorInputStream(codec, new BufferedInputStream(inputStream));
+        }
+        catch (CompressorException e)
+        {
+            inputStream.close();
+            throw new IOException("Could not decompress file " + file.getPath() + " with " + codec + ".", e);
+        }
+    }
+
+    private Reader openArffReader(String filename) throws IOException
+    {
+        File file = resolveSource(filename);
+
+        if (getCompressionCodec(file) == null)
+            return new FileReader(file);
+        else
+            return new InputStreamReader(openSource(file), Charset.defaultCharset());
+    }
+
+    private Instances loadMappedRawDataset(String filename, ClassType classType)
+    {
+        Instances dataset = null;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            if (fileSize < 2 * SIZE_INT)
+                throw new IOException("Could not read number of instances and attributes (not enough bytes were read).");
+
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, 2 * SIZE_INT);
+            int numberOfInstances = header.getInt();
+            int numberOfAttributes = header.getInt();
+            if (numberOfAttributes <= 0)
+                throw new IOException("Invalid number of attributes (" + numberOfAttributes + ").");
+
+            // create attributes
+            ArrayList<Attribute> attributes = createAttributes(numberOfAttributes);
+
+            // create data set
+            dataset = new Instances("dataSet", attributes, numberOfInstances);
+            dataset.setClassIndex(numberOfAttributes);
+
+            // map the rows in regions no larger than what a single buffer can address
+            long rowSize = (long) numberOfAttributes * SIZE_DOUBLE;
+            long rowsPerRegion = Math.max(1, MAX_MAPPED_REGION_SIZE / rowSize);
+            long position = 2 * SIZE_INT;
+
+            while (position + rowSize <= fileSize)
+            {
+                long rowsInRegion = Math.min(rowsPerRegion, (fileSize - position) / rowSize);
+                DoubleBuffer doubleBuffer = channel.map(MapMode.READ_ONLY, position, rowsInRegion * rowSize).asDoubleBuffer();
+
+                for (long i = 0; i < rowsInRegion; i++)
+                {
+                    double[] values = new double[numberOfAttributes + 1];
+                    doubleBuffer.get(values, 0, numberOfAttributes);
+                    values[numberOfAttributes] = classType.ordinal();
+                    dataset.add(compact(new DenseInstance(1.0, values)));
+                }
+
+                position += rowsInRegion * rowSize;
+            }
+        }
+        catch (NoSuchFileException e)
+        {
+            LOGGER.error("Could not find file " + filename + ".", e);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not read file " + filename + ".", e);
+        }
+
+        return dataset;
+    }
+
+    private Instances loadStreamedRawDataset(String filename, ClassType classType)
     {
         Instances dataset = null;
 
@@ -328,7 +899,7 @@ public class DatasetHelper
                     double[] values = doubleBuffer.array();
                     for (int j = 0; j < numberOfAttributes; j++)
                         instance.setValue(j, values[j]);
-                    dataset.add(instance);
+                    dataset.add(compact(instance));
                     doubleBuffer.clear();
                 }
             }
@@ -347,6 +918,287 @@ public class DatasetHelper
         return dataset;
     }
 
+    private File getSplitPlanFile(DatasetMetadata metadata, int seed, double splitPercent, boolean balanced)
+    {
+        String name = String.format("%d_%d_%s.plan", seed, Math.round(100 * splitPercent), balanced ? "balanced" : "unbalanced");
+        return new File(metadata.getFolder() + File.separator + "splits" + File.separator + name);
+    }
+
+    public long computeFingerprint(String folder)
+    {
+        // the raw files identify the dataset; data.arff is only used when there are none, since it is rewritten by saveArff
+        long checksum = computeSourceChecksum(folder);
+        if (checksum != NO_CHECKSUM)
+            return checksum;
+
+        File file = resolveSource(folder + File.separator + "data.arff");
+        if (!file.isFile())
+            return NO_CHECKSUM;
+
+        return computeContentChecksum(file);
+    }
+
+    private long computeSourceChecksum(DatasetMetadata metadata)
+    {
+        return computeSourceChecksum(metadata.getFolder());
+    }
+
+    private long computeSourceChecksum(String folder)
+    {
+        CRC32 crc = new CRC32();
+
+        for (ClassType classType : ClassType.values())
+        {
+            File file = resolveSource(folder + File.separator + classType.name().toLowerCase());
+            if (!file.isFile())
+                return NO_CHECKSUM;
+
+            long checksum = computeContentChecksum(file);
+            if (checksum == NO_CHECKSUM)
+                return NO_CHECKSUM;
+
+            ByteBuffer fingerprint = ByteBuffer.allocate(2 * Long.BYTES);
+            fingerprint.putLong(file.length());
+            fingerprint.putLong(checksum);
+            crc.update(fingerprint.array());
+        }
+
+        return crc.getValue();
+    }
+
+    private long computeContentChecksum(File file)
+    {
+        // the contents are read once per file version by each helper, so that a later run still tells apart
+        // files that were replaced with the same size and modification time
+        String key = file.getAbsolutePath() + File.pathSeparator + file.length() + File.pathSeparator + file.lastModified();
+        Long checksum = contentChecksums.get(key);
+        if (checksum != null)
+            return checksum;
+
+        try (CheckedInputStream inputStream = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32()))
+        {
+            IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+            checksum = inputStream.getChecksum().getValue();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not checksum file " + file.getPath() + ".", e);
+            return NO_CHECKSUM;
+        }
+
+        contentChecksums.put(key, checksum);
+        return checksum;
+    }
+
+    private Instances loadSnapshot(DatasetMetadata metadata, long checksum)
+    {
+        Instances dataset = null;
+        String filename = metadata.getSnapshotFilename();
+
+        if (!Files.exists(Paths.get(filename)))
+            return null;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            if (fileSize < 3 * SIZE_INT)
+                throw new IOException("Could not read snapshot preamble (not enough bytes were read).");
+
+            ByteBuffer preamble = channel.map(MapMode.READ_ONLY, 0, 3 * SIZE_INT);
+            if (preamble.getInt() != SNAPSHOT_MAGIC)
+                throw new IOException("File is not a dataset snapshot.");
+            if (preamble.getInt() != SNAPSHOT_VERSION)
+            {
+                LOGGER.info("Snapshot {} has an outdated version and will be rebuilt.", filename);
+                return null;
+            }
+            int headerSize = preamble.getInt();
+
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 3 * SIZE_INT, headerSize);
+            if (header.getLong() != checksum)
+            {
+                LOGGER.info("Snapshot {} is stale and will be rebuilt.", filename);
+                return null;
+            }
+            int classIndex = header.getInt();
+            int numberOfAttributes = header.getInt();
+            int numberOfInstances = header.getInt();
+
+            // create attributes
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            for (int j = 0; j < numberOfAttributes; j++)
+            {
+                String name = readSnapshotString(header);
+                int numberOfValues = header.getInt();
+                if (numberOfValues == 0)
+                {
+                    attributes.add(new Attribute(name));
+                }
+                else
+                {
+                    ArrayList<String> values = new ArrayList<>();
+                    for (int k = 0; k < numberOfValues; k++)
+                        values.add(readSnapshotString(header));
+                    attributes.add(new Attribute(name, values));
+                }
+            }
+
+            // create data set
+            dataset = new Instances("dataSet", attributes, numberOfInstances);
+            dataset.setClassIndex(classIndex);
+
+            int numberOfFeatures = numberOfAttributes - 1;
+            long rowSize = (long) numberOfFeatures * SIZE_DOUBLE;
+            long matrixPosition = 3 * SIZE_INT + headerSize;
+            long labelPosition = matrixPosition + numberOfInstances * rowSize;
+            if (numberOfFeatures <= 0 || fileSize != labelPosition + numberOfInstances)
+                throw new IOException("Snapshot size does not match its header.");
+
+            ByteBuffer labels = channel.map(MapMode.READ_ONLY, labelPosition, numberOfInstances);
+
+            // map the feature matrix in regions no larger than what a single buffer can address
+            long rowsPerRegion = Math.max(1, MAX_MAPPED_REGION_SIZE / rowSize);
+            for (long firstRow = 0; firstRow < numberOfInstances; firstRow += rowsPerRegion)
+            {
+                long rowsInRegion = Math.min(rowsPerRegion, numberOfInstances - firstRow);
+                DoubleBuffer doubleBuffer = channel.map(MapMode.READ_ONLY, matrixPosition + firstRow * rowSize, rowsInRegion * rowSize).asDoubleBuffer();
+
+                for (long i = 0; i < rowsInRegion; i++)
+                {
+                    double[] values = new double[numberOfAttributes];
+                    doubleBuffer.get(values, 0, classIndex);
+                    doubleBuffer.get(values, classIndex + 1, numberOfFeatures - classIndex);
+                    values[classIndex] = labels.get();
+                    dataset.add(compact(new DenseInstance(1.0, values)));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not read snapshot file " + filename + ".", e);
+            dataset = null;
+        }
+
+        return dataset;
+    }
+
+    private void saveSnapshot(DatasetMetadata metadata, Instances dataset, long checksum)
+    {
+        String filename = metadata.getSnapshotFilename();
+        Path snapshotPath = Paths.get(filename);
+        Path temporaryPath = Paths.get(filename + ".tmp");
+        int classIndex = dataset.classIndex();
+        int numberOfAttributes = dataset.numAttributes();
+
+        try
+        {
+            // the header is built first so that its size can be written in the preamble
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            try (DataOutputStream header = new DataOutputStream(headerBytes))
+            {
+                header.writeLong(checksum);
+                header.writeInt(classIndex);
+                header.writeInt(numberOfAttributes);
+                header.writeInt(dataset.numInstances());
+                for (int j = 0; j < numberOfAttributes; j++)
+                {
+                    Attribute attribute = dataset.attribute(j);
+                    writeSnapshotString(header, attribute.name());
+                    header.writeInt(attribute.isNominal() ? attribute.numValues() : 0);
+                    for (int k = 0; attribute.isNominal() && k < attribute.numValues(); k++)
+                        writeSnapshotString(header, attribute.value(k));
+                }
+            }
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath))))
+            {
+                output.writeInt(SNAPSHOT_MAGIC);
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeInt(headerBytes.size());
+                headerBytes.writeTo(output);
+
+                // row-major feature matrix
+                for (Instance instance : dataset)
+                    for (int j = 0; j < numberOfAttributes; j++)
+                        if (j != classIndex)
+                            output.writeDouble(instance.value(j));
+
+                // label column
+                for (Instance instance : dataset)
+                    output.writeByte((int) instance.classValue());
+            }
+
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Unable to save snapshot file " + filename + ".", e);
+            FileUtils.deleteQuietly(temporaryPath.toFile());
+        }
+    }
+
+    private String readSnapshotString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeSnapshotString(DataOutputStream output, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private Instance compact(Instance instance)
+    {
+        if (sparseDensityThreshold <= 0.0)
+            return instance;
+
+        int numberOfFeatures = instance.numAttributes() - 1;
+        int nonZeroCount = 0;
+        for (int j = 0; j < numberOfFeatures; j++)
+            if (instance.value(j) != 0.0)
+                nonZeroCount++;
+
+        double density = numberOfFeatures > 0 ? (double) nonZeroCount / numberOfFeatures : 1.0;
+
+        return density < sparseDensityThreshold ? new SparseInstance(instance) : instance;
+    }
+
+    private void reportSparseSavings(DatasetMetadata metadata, Instances dataset)
+    {
+        long denseBytes = 0;
+        long actualBytes = 0;
+        int sparseCount = 0;
+
+        for (Instance instance : dataset)
+        {
+            denseBytes += (long) instance.numAttributes() * SIZE_DOUBLE;
+            if (instance instanceof SparseInstance)
+            {
+                actualBytes += (long) instance.numValues() * (SIZE_DOUBLE + SIZE_INT);
+                sparseCount++;
+            }
+            else
+            {
+                actualBytes += (long) instance.numAttributes() * SIZE_DOUBLE;
+            }
+        }
+
+        LOGGER.info(
+            "Stored {} of {} instances of {}/{}/{} as sparse, saving approximately {} ({} dense vs. {} actual).",
+            sparseCount,
+            dataset.size(),
+            metadata.getName(),
+            metadata.getFeatureSelection(),
+            metadata.getNumFeaturesBeforeReduction(),
+            FileUtils.byteCountToDisplaySize(Math.max(0, denseBytes - actualBytes)),
+            FileUtils.byteCountToDisplaySize(denseBytes),
+            FileUtils.byteCountToDisplaySize(actualBytes));
+    }
+
     private Instances merge(Instances... datasets)
     {
         Instances mergedSet = null;
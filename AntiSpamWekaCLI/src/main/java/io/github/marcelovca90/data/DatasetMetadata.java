@@ -22,12 +22,16 @@
 package io.github.marcelovca90.data;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.regex.Pattern;
 
-public class DatasetMetadata
+public class DatasetMetadata implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private String folder;
     private String arffFilename;
+    private String snapshotFilename;
     private String tsneFilename;
     private String name;
     private String featureSelection;
@@ -48,6 +52,11 @@ public class DatasetMetadata
         return arffFilename;
     }
 
+    public String getSnapshotFilename()
+    {
+        return snapshotFilename;
+    }
+
     public String getTsneFilename()
     {
         return tsneFilename;
@@ -112,6 +121,7 @@ public class DatasetMetadata
     {
         this.folder = folder;
         this.arffFilename = folder + File.separator + "data.arff";
+        this.snapshotFilename = folder + File.separator + "data.snapshot";
         this.tsneFilename = folder + File.separator + "t-SNE.png";
         this.numEmptyHams = emptyHamAmount;
         this.numEmptySpams = emptySpamAmount;
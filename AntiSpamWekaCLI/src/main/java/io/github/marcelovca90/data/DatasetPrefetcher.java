@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import weka.core.Instances;
+
+public class DatasetPrefetcher implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(DatasetPrefetcher.class);
+
+    private final DatasetHelper datasetHelper;
+    private final List<DatasetMetadata> metadata;
+    private final boolean lookForArff;
+    private final int depth;
+    private final long memoryBudget;
+    private final Map<DatasetMetadata, Future<Instances>> pending = new HashMap<>();
+    private final Map<DatasetMetadata, Long> reservations = new HashMap<>();
+    private ExecutorService executor;
+
+    public DatasetPrefetcher(DatasetHelper datasetHelper, List<DatasetMetadata> metadata, boolean lookForArff, int depth, long memoryBudget)
+    {
+        this.datasetHelper = datasetHelper;
+        this.metadata = new ArrayList<>(metadata);
+        this.lookForArff = lookForArff;
+        this.depth = depth;
+        this.memoryBudget = memoryBudget;
+
+        if (depth > 0)
+        {
+            executor = Executors.newFixedThreadPool(depth, runnable ->
+            {
+                Thread thread = new Thread(runnable, "dataset-prefetcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public Instances load(DatasetMetadata current)
+    {
+        Instances dataset = null;
+        Future<Instances> future = pending.remove(current);
+        reservations.remove(current);
+
+        if (future != null)
+        {
+            try
+            {
+                dataset = future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting for dataset " + current.getFolder() + ".", e);
+            }
+            catch (ExecutionException e)
+            {
+                LOGGER.error("Could not prefetch dataset " + current.getFolder() + ".", e);
+            }
+        }
+
+        if (dataset == null)
+        {
+            dataset = datasetHelper.loadDataset(current, lookForArff);
+        }
+
+        // datasets outside the prefetch list (e.g. evicted from a resident cache) do not move the window
+        if (executor != null && metadata.contains(current))
+        {
+            schedule(metadata.indexOf(current));
+        }
+
+        return dataset;
+    }
+
+    @Override
+    public void close()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+        pending.clear();
+        reservations.clear();
+    }
+
+    private void schedule(int currentIndex)
+    {
+        for (int i = currentIndex + 1; i <= currentIndex + depth && i < metadata.size(); i++)
+        {
+            DatasetMetadata next = metadata.get(i);
+            if (pending.containsKey(next))
+                continue;
+
+            long estimatedSize = datasetHelper.estimateDatasetSize(next);
+            long reservedSize = reservations.values().stream().mapToLong(Long::longValue).sum();
+            Runtime runtime = Runtime.getRuntime();
+            long availableHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+
+            // keep datasets in order: if this one does not fit, the ones after it are not prefetched either
+            if (reservedSize + estimatedSize > Math.min(memoryBudget, availableHeap))
+            {
+                LOGGER.info(
+                    "Skipping prefetch of {} (needs {}, {} already reserved).",
+                    next.getFolder(),
+                    FileUtils.byteCountToDisplaySize(estimatedSize),
+                    FileUtils.byteCountToDisplaySize(reservedSize));
+                break;
+            }
+
+            reservations.put(next, estimatedSize);
+            pending.put(next, executor.submit(() -> datasetHelper.loadDataset(next, lookForArff)));
+        }
+    }
+}
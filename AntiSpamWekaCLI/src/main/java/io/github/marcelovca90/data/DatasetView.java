@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.data;
+
+import java.util.Arrays;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+public class DatasetView
+{
+    private final Instances dataset;
+    private int[] indices;
+    private int size;
+
+    public DatasetView(Instances dataset)
+    {
+        this.dataset = dataset;
+        this.size = dataset.size();
+        this.indices = new int[size];
+        for (int i = 0; i < size; i++)
+            indices[i] = i;
+    }
+
+    public Instances getDataset()
+    {
+        return dataset;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public Instance get(int position)
+    {
+        return dataset.get(index(position));
+    }
+
+    public int index(int position)
+    {
+        if (position >= size)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size + ".");
+
+        return indices[position];
+    }
+
+    public void set(int position, int index)
+    {
+        if (position >= size)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size + ".");
+
+        indices[position] = index;
+    }
+
+    public void add(int index)
+    {
+        if (size == indices.length)
+            indices = Arrays.copyOf(indices, Math.max(1, 2 * size));
+
+        indices[size++] = index;
+    }
+
+    public Instances materialize(String name, int fromPosition, int toPosition)
+    {
+        Instances instances = new Instances(dataset, toPosition - fromPosition);
+        instances.setRelationName(name);
+        for (int i = fromPosition; i < toPosition; i++)
+            instances.add(get(i));
+
+        return instances;
+    }
+}
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.data;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ArffLoader.ArffReader;
+
+public class InstanceStream implements Iterator<Instance>, AutoCloseable
+{
+    private final Instances structure;
+    private final List<InstanceReader> readers;
+    private final int chunkSize;
+    private final Random random;
+    private final List<Instance> chunk;
+    private int position;
+
+    InstanceStream(Instances structure, List<InstanceReader> readers, int chunkSize, long seed)
+    {
+        this.structure = structure;
+        this.readers = readers;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.random = new Random(seed);
+        this.chunk = new ArrayList<>(this.chunkSize);
+    }
+
+    InstanceStream(Instances structure, List<InstanceReader> readers, int chunkSize)
+    {
+        // without a seed, instances are returned in the order they were read
+        this.structure = structure;
+        this.readers = readers;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.random = null;
+        this.chunk = new ArrayList<>(this.chunkSize);
+    }
+
+    public Instances getStructure()
+    {
+        return structure;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (position >= chunk.size())
+        {
+            fillChunk();
+        }
+
+        return position < chunk.size();
+    }
+
+    @Override
+    public Instance next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        return chunk.get(position++);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        for (InstanceReader reader : readers)
+            reader.close();
+    }
+
+    private void fillChunk()
+    {
+        chunk.clear();
+        position = 0;
+
+        try
+        {
+            long totalRemaining = readers.stream().mapToLong(InstanceReader::remaining).sum();
+            for (InstanceReader reader : readers)
+            {
+                // draw from each source in proportion to what it still holds, so that classes stay interleaved
+                long quota = totalRemaining > 0 ? Math.max(1, Math.round((double) chunkSize * reader.remaining() / totalRemaining)) : chunkSize;
+                for (long i = 0; i < quota; i++)
+                {
+                    Instance instance = reader.read();
+                    if (instance == null)
+                        break;
+                    instance.setDataset(structure);
+                    chunk.add(instance);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        if (random != null)
+        {
+            Collections.shuffle(chunk, random);
+        }
+    }
+
+    interface InstanceReader extends Closeable
+    {
+        Instance read() throws IOException;
+
+        long remaining();
+    }
+
+    static class RawInstanceReader implements InstanceReader
+    {
+        private final DataInputStream inputStream;
+        private final int numberOfAttributes;
+        private final ClassType classType;
+        private final byte[] rowBytes;
+        private final DoubleBuffer rowBuffer;
+        private long remaining;
+
+        RawInstanceReader(DataInputStream inputStream, int numberOfInstances, int numberOfAttributes, ClassType classType)
+        {
+            this.inputStream = inputStream;
+            this.numberOfAttributes = numberOfAttributes;
+            this.classType = classType;
+            this.rowBytes = new byte[numberOfAttributes * Double.BYTES];
+            this.rowBuffer = ByteBuffer.wrap(rowBytes).asDoubleBuffer();
+            this.remaining = numberOfInstances;
+        }
+
+        @Override
+        public Instance read() throws IOException
+        {
+            if (IOUtils.read(inputStream, rowBytes) != rowBytes.length)
+                return null;
+
+            double[] values = new double[numberOfAttributes + 1];
+            rowBuffer.rewind();
+            rowBuffer.get(values, 0, numberOfAttributes);
+            values[numberOfAttributes] = classType != null ? classType.ordinal() : Utils.missingValue();
+            remaining = Math.max(0, remaining - 1);
+
+            return new DenseInstance(1.0, values);
+        }
+
+        @Override
+        public long remaining()
+        {
+            return remaining;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            inputStream.close();
+        }
+    }
+
+    static class ArffInstanceReader implements InstanceReader
+    {
+        private final Reader reader;
+        private final ArffReader arffReader;
+        private final Instances structure;
+
+        ArffInstanceReader(Reader reader, ArffReader arffReader, Instances structure)
+        {
+            this.reader = reader;
+            this.arffReader = arffReader;
+            this.structure = structure;
+        }
+
+        @Override
+        public Instance read() throws IOException
+        {
+            return arffReader.readInstance(structure);
+        }
+
+        @Override
+        public long remaining()
+        {
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            reader.close();
+        }
+    }
+}
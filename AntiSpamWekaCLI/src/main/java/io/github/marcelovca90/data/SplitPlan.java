@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.data;
+
+import java.io.Serializable;
+
+public class SplitPlan implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int seed;
+    private final double splitPercent;
+    private final boolean balanced;
+    private final int numInstances;
+    private final int[] trainIndices;
+    private final int[] testIndices;
+
+    public SplitPlan(int seed, double splitPercent, boolean balanced, int numInstances, int[] trainIndices, int[] testIndices)
+    {
+        this.seed = seed;
+        this.splitPercent = splitPercent;
+        this.balanced = balanced;
+        this.numInstances = numInstances;
+        this.trainIndices = trainIndices;
+        this.testIndices = testIndices;
+    }
+
+    public SplitPlan(DatasetView view, int seed, double splitPercent, boolean balanced)
+    {
+        this.seed = seed;
+        this.splitPercent = splitPercent;
+        this.balanced = balanced;
+        this.numInstances = view.getDataset().size();
+
+        int splitIndex = (int) (splitPercent * view.size());
+        this.trainIndices = new int[splitIndex];
+        for (int i = 0; i < splitIndex; i++)
+            trainIndices[i] = view.index(i);
+        this.testIndices = new int[view.size() - splitIndex];
+        for (int i = splitIndex; i < view.size(); i++)
+            testIndices[i - splitIndex] = view.index(i);
+    }
+
+    public int getSeed()
+    {
+        return seed;
+    }
+
+    public double getSplitPercent()
+    {
+        return splitPercent;
+    }
+
+    public boolean isBalanced()
+    {
+        return balanced;
+    }
+
+    public int getNumInstances()
+    {
+        return numInstances;
+    }
+
+    public int[] getTrainIndices()
+    {
+        return trainIndices;
+    }
+
+    public int[] getTestIndices()
+    {
+        return testIndices;
+    }
+}
@@ -23,12 +23,14 @@ package io.github.marcelovca90.evaluation;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -52,6 +54,7 @@ public class EvaluationHelper
     private static final Logger LOGGER = LogManager.getLogger(EvaluationHelper.class);
     private static final Map<Classifier, Map<String, DescriptiveStatistics>> RESULTS = new HashMap<>();
     private static final Map<Pair<Classifier, String>, Appender> APPENDERS = new HashMap<>();
+    private static final Map<Classifier, Map<Outcome, Integer>> OUTCOMES = new HashMap<>();
 
     public void addAppender(Classifier classifier, String logName)
     {
@@ -82,33 +85,113 @@ public class EvaluationHelper
         APPENDERS.remove(appenderKey);
     }
 
-    public void compute(Classifier classifier, TimedEvaluation evaluation)
+    public Map<String, Double> compute(Classifier classifier, TimedEvaluation evaluation)
     {
+        Map<String, Double> metrics = measure(evaluation);
+
+        restore(classifier, metrics);
+
+        return metrics;
+    }
+
+    public Map<String, Double> measure(TimedEvaluation evaluation)
+    {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+
+        // a streaming evaluation has computed every classification metric in a single pass
+        if (evaluation.isStreaming())
+            metrics.putAll(evaluation.getStreaming().metrics());
+        else
+            metrics.putAll(measureStoredPredictions(evaluation));
+
+        metrics.put("trainingTime", (double) evaluation.trainingTime());
+        metrics.put("testingTime", (double) evaluation.testingTime());
+        metrics.put("trainingCpuTime", (double) evaluation.trainingCpuTime());
+        metrics.put("testingCpuTime", (double) evaluation.testingCpuTime());
+
+        // memory pressure of each phase; collections and heap peaks are those of the whole JVM
+        measureUsage(metrics, "training", evaluation.getTrainingUsage());
+        measureUsage(metrics, "testing", evaluation.getTestingUsage());
+
+        // size of the trained model, when it was measured
+        ModelFootprint footprint = evaluation.getFootprint();
+        if (footprint != null)
+        {
+            metrics.put("modelSizeMB", footprint.getSerializedBytes() / (double) FileUtils.ONE_MB);
+            metrics.put("modelHeapMB", footprint.getRetainedBytes() / (double) FileUtils.ONE_MB);
+            metrics.put("serializationTime", footprint.getSerializationNanos() / 1e6);
+            metrics.put("deserializationTime", footprint.getDeserializationNanos() / 1e6);
+        }
+
+        // per-message latencies in microseconds, and the resulting throughput
+        LatencyHistogram latencies = evaluation.getLatencies();
+        metrics.put("p50Latency", latencies.getPercentile(50.0) / 1e3);
+        metrics.put("p90Latency", latencies.getPercentile(90.0) / 1e3);
+        metrics.put("p99Latency", latencies.getPercentile(99.0) / 1e3);
+        metrics.put("p999Latency", latencies.getPercentile(99.9) / 1e3);
+        metrics.put("messagesPerSecond", evaluation.messagesPerSecond());
+
+        return metrics;
+    }
+
+    private Map<String, Double> measureStoredPredictions(TimedEvaluation evaluation)
+    {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+
         int hamIndex = ClassType.HAM.ordinal();
         int spamIndex = ClassType.SPAM.ordinal();
 
-        aggregate(classifier, "hamPrecision", 100.0 * evaluation.precision(hamIndex));
-        aggregate(classifier, "spamPrecision", 100.0 * evaluation.precision(spamIndex));
-        aggregate(classifier, "weightedPrecision", 100.0 * evaluation.weightedPrecision());
+        metrics.put("hamPrecision", 100.0 * evaluation.precision(hamIndex));
+        metrics.put("spamPrecision", 100.0 * evaluation.precision(spamIndex));
+        metrics.put("weightedPrecision", 100.0 * evaluation.weightedPrecision());
+
+        metrics.put("hamRecall", 100.0 * evaluation.recall(hamIndex));
+        metrics.put("spamRecall", 100.0 * evaluation.recall(spamIndex));
+        metrics.put("weightedRecall", 100.0 * evaluation.weightedRecall());
+
+        metrics.put("hamAreaUnderPRC", 100.0 * evaluation.areaUnderPRC(hamIndex));
+        metrics.put("spamAreaUnderPRC", 100.0 * evaluation.areaUnderPRC(spamIndex));
+        metrics.put("weightedAreaUnderPRC", 100.0 * evaluation.weightedAreaUnderPRC());
+
+        metrics.put("hamAreaUnderROC", 100.0 * evaluation.areaUnderROC(hamIndex));
+        metrics.put("spamAreaUnderROC", 100.0 * evaluation.areaUnderROC(spamIndex));
+        metrics.put("weightedAreaUnderROC", 100.0 * evaluation.weightedAreaUnderROC());
+
+        metrics.put("hamFMeasure", 100.0 * evaluation.fMeasure(hamIndex));
+        metrics.put("spamFMeasure", 100.0 * evaluation.fMeasure(spamIndex));
+        metrics.put("weightedFMeasure", 100.0 * evaluation.weightedFMeasure());
+
+        return metrics;
+    }
+
+    private void measureUsage(Map<String, Double> metrics, String phase, ResourceUsage usage)
+    {
+        metrics.put(phase + "AllocatedMB", usage.getAllocatedBytes() / (double) FileUtils.ONE_MB);
+        metrics.put(phase + "GcCount", (double) usage.getGcCount());
+        metrics.put(phase + "GcTime", (double) usage.getGcTime());
+        metrics.put(phase + "PeakHeapMB", usage.getPeakHeapBytes() / (double) FileUtils.ONE_MB);
+    }
 
-        aggregate(classifier, "hamRecall", 100.0 * evaluation.recall(hamIndex));
-        aggregate(classifier, "spamRecall", 100.0 * evaluation.recall(spamIndex));
-        aggregate(classifier, "weightedRecall", 100.0 * evaluation.weightedRecall());
+    public void restore(Classifier classifier, Map<String, Double> metrics)
+    {
+        metrics.forEach((metric, value) -> aggregate(classifier, metric, value));
+    }
 
-        aggregate(classifier, "hamAreaUnderPRC", 100.0 * evaluation.areaUnderPRC(hamIndex));
-        aggregate(classifier, "spamAreaUnderPRC", 100.0 * evaluation.areaUnderPRC(spamIndex));
-        aggregate(classifier, "weightedAreaUnderPRC", 100.0 * evaluation.weightedAreaUnderPRC());
+    public boolean hasConverged(Classifier classifier, String metric, double halfWidth)
+    {
+        if (!RESULTS.containsKey(classifier) || !RESULTS.get(classifier).containsKey(metric))
+            return false;
 
-        aggregate(classifier, "hamAreaUnderROC", 100.0 * evaluation.areaUnderROC(hamIndex));
-        aggregate(classifier, "spamAreaUnderROC", 100.0 * evaluation.areaUnderROC(spamIndex));
-        aggregate(classifier, "weightedAreaUnderROC", 100.0 * evaluation.weightedAreaUnderROC());
+        DescriptiveStatistics statistics = RESULTS.get(classifier).get(metric);
+        return statistics.getN() > 1 && confidenceInterval(statistics, 0.05) <= halfWidth;
+    }
 
-        aggregate(classifier, "hamFMeasure", 100.0 * evaluation.fMeasure(hamIndex));
-        aggregate(classifier, "spamFMeasure", 100.0 * evaluation.fMeasure(spamIndex));
-        aggregate(classifier, "weightedFMeasure", 100.0 * evaluation.weightedFMeasure());
+    public void recordOutcome(DatasetMetadata metadata, Classifier classifier, Outcome outcome)
+    {
+        OUTCOMES.putIfAbsent(classifier, new EnumMap<>(Outcome.class));
+        OUTCOMES.get(classifier).merge(outcome, 1, Integer::sum);
 
-        aggregate(classifier, "trainingTime", evaluation.trainingTime());
-        aggregate(classifier, "testingTime", evaluation.testingTime());
+        LOGGER.info(buildBodyPrefix(metadata, classifier) + "\t" + outcome);
     }
 
     public void print(DatasetMetadata metadata, Classifier classifier)
@@ -135,21 +218,43 @@ public class EvaluationHelper
 
     public void summarize(DatasetMetadata metadata, Classifier classifier)
     {
-        LOGGER.info(
-            buildHeaderPrefix(classifier) + "\t" + RESULTS
-                .get(classifier)
-                .keySet()
-                .stream()
-                .map(k -> StringUtils.rightPad(k, 15))
-                .collect(Collectors.joining("\t")));
+        if (RESULTS.containsKey(classifier))
+        {
+            LOGGER.info(
+                buildHeaderPrefix(classifier) + "\t" + RESULTS
+                    .get(classifier)
+                    .keySet()
+                    .stream()
+                    .map(k -> StringUtils.rightPad(k, 15))
+                    .collect(Collectors.joining("\t")) + "\t" + "runs");
 
-        LOGGER.info(
-            buildBodyPrefix(metadata, classifier) + "\t" + RESULTS
-                .get(classifier)
-                .entrySet()
-                .stream()
-                .map(this::formatCompositeOutput)
-                .collect(Collectors.joining("\t")));
+            LOGGER.info(
+                buildBodyPrefix(metadata, classifier) + "\t" + RESULTS
+                    .get(classifier)
+                    .entrySet()
+                    .stream()
+                    .map(this::formatCompositeOutput)
+                    .collect(Collectors.joining("\t")) + "\t" + RESULTS.get(classifier).values().iterator().next().getN());
+        }
+
+        // executions cancelled for exceeding their limits do not contribute to the statistics above
+        if (OUTCOMES.containsKey(classifier))
+        {
+            LOGGER.info(
+                buildBodyPrefix(metadata, classifier) + "\t" + OUTCOMES
+                    .get(classifier)
+                    .entrySet()
+                    .stream()
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining("\t")));
+        }
+    }
+
+    public void reset()
+    {
+        // forget every classifier seen so far, e.g. between experiments of a long-lived process
+        RESULTS.clear();
+        OUTCOMES.clear();
     }
 
     private void aggregate(Classifier classifier, String metric, double value)
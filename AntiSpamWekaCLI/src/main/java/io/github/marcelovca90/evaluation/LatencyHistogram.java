@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    // log-linear buckets: 32 sub-buckets per power of two keep the relative error of a percentile around 3%
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos)
+    {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.get();
+        return n > 0 ? (double) sum.get() / n : 0.0;
+    }
+
+    public long getPercentile(double percentile)
+    {
+        long n = count.get();
+        if (n == 0)
+            return 0L;
+
+        // report the highest value of the bucket holding the requested rank, but never more than the maximum
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * n));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            cumulative += counts.get(i);
+            if (cumulative >= rank)
+                return Math.min(highestEquivalentValue(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    public String describe(double... percentiles)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (double percentile : percentiles)
+            builder.append(String.format("p%s=%.1fus ", formatPercentile(percentile), getPercentile(percentile) / (double) TimeUnit.MICROSECONDS.toNanos(1)));
+        builder.append(String.format("max=%.1fus n=%d", getMax() / (double) TimeUnit.MICROSECONDS.toNanos(1), getCount()));
+
+        return builder.toString();
+    }
+
+    private static String formatPercentile(double percentile)
+    {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    static int index(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        // keep the leading SUB_BUCKET_BITS + 1 bits of the value, then offset by its magnitude
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> magnitude);
+        return (magnitude + 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    static long highestEquivalentValue(int index)
+    {
+        int block = index / SUB_BUCKETS;
+        int offset = index % SUB_BUCKETS;
+        if (block == 0)
+            return index;
+
+        int magnitude = block - 1;
+        return ((long) (SUB_BUCKETS + offset + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class ModelFootprint implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = LogManager.getLogger(ModelFootprint.class);
+
+    // layout of a 64-bit HotSpot JVM with compressed references, which is the default below 32 GB of heap
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private final long serializedBytes;
+    private final long serializationNanos;
+    private final long deserializationNanos;
+    private final long retainedBytes;
+
+    private ModelFootprint(long serializedBytes, long serializationNanos, long deserializationNanos, long retainedBytes)
+    {
+        this.serializedBytes = serializedBytes;
+        this.serializationNanos = serializationNanos;
+        this.deserializationNanos = deserializationNanos;
+        this.retainedBytes = retainedBytes;
+    }
+
+    public static ModelFootprint measure(Object model) throws IOException, InterruptedException
+    {
+        // serialize to a scratch file as saveModel would, then read the model back to time what a scoring node pays to load it;
+        // neither the serialized form nor a second copy of the model is ever held in this heap, so measuring does not double the footprint
+        File file = File.createTempFile("model", ".footprint");
+        File timing = File.createTempFile("model", ".timing");
+        ModelFootprint footprint;
+        try
+        {
+            long start = System.nanoTime();
+            CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try (ObjectOutputStream output = new ObjectOutputStream(counter))
+            {
+                output.writeObject(model);
+            }
+            long serializationNanos = System.nanoTime() - start;
+
+            // the copy is read back in a separate JVM, which reports how long the read took
+            List<String> command = Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"), ModelFootprint.class.getName(), file.getPath(), timing.getPath());
+            int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+            String deserializationNanos = FileUtils.readFileToString(timing, StandardCharsets.UTF_8).trim();
+            if (status != 0 || !NumberUtils.isDigits(deserializationNanos))
+                throw new IOException("Could not read back model from " + file + " (exit status " + status + ").");
+
+            footprint = new ModelFootprint(counter.getByteCount(), serializationNanos, Long.parseLong(deserializationNanos), retainedBytes(model));
+        }
+        finally
+        {
+            FileUtils.deleteQuietly(file);
+            FileUtils.deleteQuietly(timing);
+        }
+
+        LOGGER.debug("Model {} takes {} serialized byte(s) and about {} byte(s) of heap.", model.getClass().getSimpleName(), footprint.serializedBytes, footprint.retainedBytes);
+        return footprint;
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException
+    {
+        // the first read loads the model classes; the second, once the first copy is unreachable, is the one timed
+        File file = new File(args[0]);
+        read(file);
+        long start = System.nanoTime();
+        read(file);
+        FileUtils.writeStringToFile(new File(args[1]), String.valueOf(System.nanoTime() - start), StandardCharsets.UTF_8);
+    }
+
+    private static Object read(File file) throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            return input.readObject();
+        }
+    }
+
+    public long getSerializedBytes()
+    {
+        return serializedBytes;
+    }
+
+    public long getSerializationNanos()
+    {
+        return serializationNanos;
+    }
+
+    public long getDeserializationNanos()
+    {
+        return deserializationNanos;
+    }
+
+    public long getRetainedBytes()
+    {
+        return retainedBytes;
+    }
+
+    static long retainedBytes(Object root)
+    {
+        // shallow sizes of every object reachable from the model through instance fields, each counted once
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        visited.add(root);
+
+        long total = 0L;
+        while (!pending.isEmpty())
+        {
+            Object object = pending.pop();
+            Class<?> clazz = object.getClass();
+
+            if (clazz.isArray())
+            {
+                Class<?> component = clazz.getComponentType();
+                int length = Array.getLength(object);
+                total += align(ARRAY_HEADER + (long) length * size(component));
+                if (!component.isPrimitive())
+                    for (int i = 0; i < length; i++)
+                        visit(Array.get(object, i), visited, pending);
+                continue;
+            }
+
+            // JDK collections are followed through their public API, since modules may hide their fields
+            if (clazz.getName().startsWith("java.") && (object instanceof Collection || object instanceof Map))
+            {
+                Collection<?> elements = object instanceof Map ? ((Map<?, ?>) object).entrySet() : (Collection<?>) object;
+                total += align(OBJECT_HEADER + 4 * REFERENCE) + align(ARRAY_HEADER + (long) elements.size() * REFERENCE);
+                for (Object element : elements)
+                {
+                    if (element instanceof Map.Entry)
+                    {
+                        total += align(OBJECT_HEADER + 3 * REFERENCE + 4);
+                        visit(((Map.Entry<?, ?>) element).getKey(), visited, pending);
+                        visit(((Map.Entry<?, ?>) element).getValue(), visited, pending);
+                    }
+                    else
+                    {
+                        visit(element, visited, pending);
+                    }
+                }
+                continue;
+            }
+
+            long shallow = OBJECT_HEADER;
+            for (Field field : fields(clazz))
+            {
+                shallow += size(field.getType());
+                if (!field.getType().isPrimitive())
+                {
+                    try
+                    {
+                        visit(field.get(object), visited, pending);
+                    }
+                    catch (IllegalAccessException e)
+                    {
+                        // fields that cannot be read only count as a reference
+                    }
+                }
+            }
+            total += align(shallow);
+        }
+
+        return total;
+    }
+
+    private static void visit(Object object, Set<Object> visited, Deque<Object> pending)
+    {
+        // classes and their loaders are shared by the whole JVM and not retained by the model
+        if (object != null && !(object instanceof Class) && !(object instanceof ClassLoader) && visited.add(object))
+            pending.push(object);
+    }
+
+    private static List<Field> fields(Class<?> clazz)
+    {
+        return FIELDS.computeIfAbsent(clazz, key ->
+        {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = key; c != null; c = c.getSuperclass())
+            {
+                for (Field field : c.getDeclaredFields())
+                {
+                    if (Modifier.isStatic(field.getModifiers()))
+                        continue;
+                    try
+                    {
+                        field.setAccessible(true);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // modules may refuse access to JDK internals, whose contents are then not followed
+                    }
+                    fields.add(field);
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static int size(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+            return 8;
+        if (type == int.class || type == float.class)
+            return 4;
+        if (type == short.class || type == char.class)
+            return 2;
+        if (type == byte.class || type == boolean.class)
+            return 1;
+        return REFERENCE;
+    }
+
+    private static long align(long size)
+    {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
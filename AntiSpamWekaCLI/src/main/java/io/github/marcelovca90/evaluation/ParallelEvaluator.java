@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.marcelovca90.inference.CompiledClassifier;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.BatchPredictor;
+import weka.core.Instances;
+
+public class ParallelEvaluator
+{
+    // classifiers whose predictions only read the trained model, so that a single instance can be shared by every thread
+    private static final List<String> THREAD_SAFE = Arrays.asList(
+        "weka.classifiers.trees.J48",
+        "weka.classifiers.trees.REPTree",
+        "weka.classifiers.trees.RandomTree",
+        "weka.classifiers.trees.RandomForest",
+        "weka.classifiers.rules.ZeroR");
+
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final int threads;
+    private final int chunkSize;
+
+    public ParallelEvaluator(int threads)
+    {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelEvaluator(int threads, int chunkSize)
+    {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public static boolean isThreadSafe(Classifier classifier)
+    {
+        if (classifier instanceof CompiledClassifier)
+            return isThreadSafe(((CompiledClassifier) classifier).getOriginal());
+
+        return THREAD_SAFE.contains(classifier.getClass().getName());
+    }
+
+    public void evaluate(TimedEvaluation evaluation, Classifier classifier, Instances testSet) throws Exception
+    {
+        // other classifiers may keep state while predicting, so a serialized copy is lent to each chunk being scored
+        BlockingQueue<Classifier> copies = new LinkedBlockingQueue<>();
+        if (isThreadSafe(classifier))
+            copies.addAll(Collections.nCopies(threads, classifier));
+        else
+            copies.addAll(Arrays.asList(AbstractClassifier.makeCopies(classifier, threads)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            Thread thread = new Thread(runnable, "parallel-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LongAdder cpuTime = new LongAdder();
+        LongAdder allocatedBytes = new LongAdder();
+        Deque<Future<double[][]>> inFlight = new ArrayDeque<>();
+        int recorded = 0;
+
+        try
+        {
+            for (int from = 0; from < testSet.numInstances(); from += chunkSize)
+            {
+                Instances chunk = new Instances(testSet, from, Math.min(chunkSize, testSet.numInstances() - from));
+                inFlight.add(executor.submit(() -> predict(copies, chunk, evaluation.getLatencies(), cpuTime, allocatedBytes)));
+
+                // bound memory to a few chunks per thread, recording predictions in input order
+                while (inFlight.size() >= 2 * threads)
+                    recorded = record(evaluation, testSet, recorded, inFlight.poll().get());
+            }
+
+            while (!inFlight.isEmpty())
+                recorded = record(evaluation, testSet, recorded, inFlight.poll().get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            evaluation.addTestingWork(cpuTime.sum(), allocatedBytes.sum());
+        }
+    }
+
+    private double[][] predict(BlockingQueue<Classifier> copies, Instances chunk, LatencyHistogram latencies, LongAdder cpuTime, LongAdder allocatedBytes) throws Exception
+    {
+        long cpuStart = ResourceUsage.currentThreadCpuTime();
+        long allocatedStart = ResourceUsage.currentThreadAllocatedBytes();
+        Classifier copy = copies.take();
+        try
+        {
+            if (copy instanceof BatchPredictor && ((BatchPredictor) copy).implementsMoreEfficientBatchPrediction())
+                return TimedEvaluation.predict((BatchPredictor) copy, chunk, latencies);
+
+            double[][] distributions = new double[chunk.numInstances()][];
+            for (int i = 0; i < distributions.length; i++)
+                distributions[i] = TimedEvaluation.predict(copy, chunk.instance(i), latencies);
+            return distributions;
+        }
+        finally
+        {
+            copies.add(copy);
+            cpuTime.add(ResourceUsage.currentThreadCpuTime() - cpuStart);
+            allocatedBytes.add(ResourceUsage.currentThreadAllocatedBytes() - allocatedStart);
+        }
+    }
+
+    private int record(TimedEvaluation evaluation, Instances testSet, int offset, double[][] distributions) throws Exception
+    {
+        for (int i = 0; i < distributions.length; i++)
+            evaluation.recordPrediction(distributions[i], testSet.instance(offset + i));
+
+        return offset + distributions.length;
+    }
+}
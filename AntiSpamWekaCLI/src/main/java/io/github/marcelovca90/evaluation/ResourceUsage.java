@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import java.io.Serializable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResourceUsage implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final long SAMPLE_INTERVAL = 10L;
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long cpuTime;
+    private long allocatedBytes;
+    private long gcCount;
+    private long gcTime;
+    private long peakHeapBytes;
+
+    private transient long cpuTimeStart;
+    private transient long allocatedBytesStart;
+    private transient long gcCountStart;
+    private transient long gcTimeStart;
+    private transient AtomicLong sampledPeak;
+    private transient ScheduledFuture<?> sampling;
+
+    public void start()
+    {
+        // the used heap is sampled while the phase runs, instead of resetting the JVM-wide pool peaks other runs rely on
+        AtomicLong peak = new AtomicLong(usedHeap());
+        sampledPeak = peak;
+        sampling = SAMPLER.scheduleAtFixedRate(() -> peak.accumulateAndGet(usedHeap(), Math::max), SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+
+        cpuTimeStart = currentThreadCpuTime();
+        allocatedBytesStart = currentThreadAllocatedBytes();
+        gcCountStart = gcCount();
+        gcTimeStart = gcTime();
+    }
+
+    public void stop()
+    {
+        // a phase that was never started (or was already stopped) has no sampler to cancel
+        if (sampling == null)
+            return;
+
+        cpuTime += currentThreadCpuTime() - cpuTimeStart;
+        allocatedBytes += currentThreadAllocatedBytes() - allocatedBytesStart;
+        gcCount += gcCount() - gcCountStart;
+        gcTime += gcTime() - gcTimeStart;
+
+        // the heap is shared, so under concurrent runs the peak also includes what the other runs hold
+        sampling.cancel(false);
+        sampling = null;
+        peakHeapBytes = Math.max(peakHeapBytes, sampledPeak.accumulateAndGet(usedHeap(), Math::max));
+    }
+
+    public void add(long cpuTime, long allocatedBytes)
+    {
+        // work done by other threads on behalf of this phase
+        this.cpuTime += cpuTime;
+        this.allocatedBytes += allocatedBytes;
+    }
+
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    public long getGcCount()
+    {
+        return gcCount;
+    }
+
+    public long getGcTime()
+    {
+        return gcTime;
+    }
+
+    public long getPeakHeapBytes()
+    {
+        return peakHeapBytes;
+    }
+
+    public static long currentThreadCpuTime()
+    {
+        // nanoseconds of CPU used by the calling thread only, or zero when the JVM cannot measure it
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0L;
+    }
+
+    public static long currentThreadAllocatedBytes()
+    {
+        // bytes allocated by the calling thread only, or zero when the JVM cannot measure it
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0L;
+    }
+
+    private static long usedHeap()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount()
+    {
+        // collections are counted for the whole JVM, including concurrent runs
+        long count = 0L;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0L, collector.getCollectionCount());
+        return count;
+    }
+
+    private static long gcTime()
+    {
+        long time = 0L;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0L, collector.getCollectionTime());
+        return time;
+    }
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.data.ClassType;
+import weka.core.Utils;
+
+public class StreamingEvaluation implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LogManager.getLogger(StreamingEvaluation.class);
+
+    private static final int HAM = ClassType.HAM.ordinal();
+    private static final int SPAM = ClassType.SPAM.ordinal();
+
+    private final int bins;
+    private final double[][] confusion = new double[2][2];
+
+    // weights of ham and spam per distinct spam probability, while there are at most as many as bins (exact curves)
+    private TreeMap<Double, double[]> scores = new TreeMap<>();
+    // weights of ham and spam per equal-width spam probability bin, once there are more (approximate curves)
+    private double[][] histogram;
+
+    public StreamingEvaluation(int bins)
+    {
+        this.bins = bins;
+    }
+
+    public void record(int actual, double[] distribution, double weight)
+    {
+        // as in weka.classifiers.Evaluation, an instance without any probability is left unclassified
+        int predicted = Utils.maxIndex(distribution);
+        if (distribution[predicted] <= 0)
+            return;
+
+        confusion[actual][predicted] += weight;
+
+        double score = distribution[SPAM];
+        if (histogram != null)
+        {
+            histogram[actual][bin(score)] += weight;
+        }
+        else
+        {
+            scores.computeIfAbsent(score, key -> new double[2])[actual] += weight;
+            if (scores.size() > bins)
+                collapse();
+        }
+    }
+
+    public boolean isExact()
+    {
+        return histogram == null;
+    }
+
+    public Map<String, Double> metrics()
+    {
+        // every metric comes from the confusion counts and a single walk over the score groups
+        double[][] groups = groups();
+        double[] classWeights = { confusion[HAM][HAM] + confusion[HAM][SPAM], confusion[SPAM][HAM] + confusion[SPAM][SPAM] };
+
+        double[] precision = new double[2];
+        double[] recall = new double[2];
+        double[] fMeasure = new double[2];
+        double[] areaUnderPRC = new double[2];
+        double[] areaUnderROC = new double[2];
+        for (int c : new int[] { HAM, SPAM })
+        {
+            precision[c] = ratio(confusion[c][c], confusion[HAM][c] + confusion[SPAM][c]);
+            recall[c] = ratio(confusion[c][c], classWeights[c]);
+            fMeasure[c] = precision[c] + recall[c] > 0 ? 2 * precision[c] * recall[c] / (precision[c] + recall[c]) : 0.0;
+            areaUnderPRC[c] = areaUnderPRC(groups, c);
+            areaUnderROC[c] = areaUnderROC(groups, c);
+        }
+
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        put(metrics, "Precision", precision, classWeights);
+        put(metrics, "Recall", recall, classWeights);
+        put(metrics, "AreaUnderPRC", areaUnderPRC, classWeights);
+        put(metrics, "AreaUnderROC", areaUnderROC, classWeights);
+        put(metrics, "FMeasure", fMeasure, classWeights);
+        return metrics;
+    }
+
+    private void collapse()
+    {
+        LOGGER.info("More than {} distinct scores, areas under ROC and PRC are approximated with {} bins from now on.", bins, bins);
+        histogram = new double[2][bins];
+        scores.forEach((score, weights) ->
+        {
+            histogram[HAM][bin(score)] += weights[HAM];
+            histogram[SPAM][bin(score)] += weights[SPAM];
+        });
+        scores = null;
+    }
+
+    private int bin(double score)
+    {
+        return Math.max(0, Math.min(bins - 1, (int) (score * bins)));
+    }
+
+    private double[][] groups()
+    {
+        // ham and spam weights per group, by increasing spam probability
+        if (histogram != null)
+            return new double[][] { histogram[HAM], histogram[SPAM] };
+
+        double[][] groups = new double[2][scores.size()];
+        int g = 0;
+        for (double[] weights : scores.values())
+        {
+            groups[HAM][g] = weights[HAM];
+            groups[SPAM][g] = weights[SPAM];
+            g++;
+        }
+        return groups;
+    }
+
+    private double areaUnderROC(double[][] groups, int positive)
+    {
+        // the Mann-Whitney statistic with ties counted as half, as computed by weka.classifiers.evaluation.ThresholdCurve
+        int negative = 1 - positive;
+        int n = groups[positive].length;
+        double area = 0.0, belowNegatives = 0.0, totalPositives = 0.0, totalNegatives = 0.0;
+        for (int k = 0; k < n; k++)
+        {
+            // the positive class probability increases with k for spam and decreases with k for ham
+            int g = positive == SPAM ? k : n - 1 - k;
+            area += groups[positive][g] * (belowNegatives + 0.5 * groups[negative][g]);
+            belowNegatives += groups[negative][g];
+            totalPositives += groups[positive][g];
+            totalNegatives += groups[negative][g];
+        }
+        return area / (totalPositives * totalNegatives);
+    }
+
+    private double areaUnderPRC(double[][] groups, int positive)
+    {
+        // precision times the recall gained at each threshold, from the highest to the lowest
+        int negative = 1 - positive;
+        int n = groups[positive].length;
+        double totalPositives = 0.0;
+        for (int g = 0; g < n; g++)
+            totalPositives += groups[positive][g];
+
+        double area = 0.0, truePositives = 0.0, falsePositives = 0.0, lastRecall = 0.0;
+        for (int k = 0; k < n; k++)
+        {
+            int g = positive == SPAM ? n - 1 - k : k;
+            if (groups[positive][g] == 0 && groups[negative][g] == 0)
+                continue;
+            truePositives += groups[positive][g];
+            falsePositives += groups[negative][g];
+            double recall = truePositives / totalPositives;
+            area += truePositives / (truePositives + falsePositives) * (recall - lastRecall);
+            lastRecall = recall;
+        }
+        return area > 0 ? area : Double.NaN;
+    }
+
+    private void put(Map<String, Double> metrics, String name, double[] values, double[] classWeights)
+    {
+        double weighted = 0.0, total = 0.0;
+        for (int c = 0; c < values.length; c++)
+        {
+            if (!Double.isNaN(values[c]))
+                weighted += values[c] * classWeights[c];
+            total += classWeights[c];
+        }
+
+        metrics.put("ham" + name, 100.0 * values[HAM]);
+        metrics.put("spam" + name, 100.0 * values[SPAM]);
+        metrics.put("weighted" + name, 100.0 * weighted / total);
+    }
+
+    private double ratio(double numerator, double denominator)
+    {
+        return denominator > 0 ? numerator / denominator : 0.0;
+    }
+}
@@ -21,50 +21,216 @@
  ******************************************************************************/
 package io.github.marcelovca90.evaluation;
 
+import java.util.concurrent.TimeUnit;
+
+import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
+import weka.core.BatchPredictor;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 
 public class TimedEvaluation extends Evaluation
 {
     private static final long serialVersionUID = 9104672475069946341L;
+    private static final int BATCH_CHUNK_SIZE = 4096;
 
     private long trainStart;
     private long trainEnd;
     private long testStart;
     private long testEnd;
+    private final ResourceUsage trainUsage = new ResourceUsage();
+    private final ResourceUsage testUsage = new ResourceUsage();
+    private ModelFootprint footprint;
+    private final StreamingEvaluation streaming;
+    private final LatencyHistogram latencies = new LatencyHistogram();
 
     public TimedEvaluation(Instances data) throws Exception
     {
+        this(data, 0);
+    }
+
+    public TimedEvaluation(Instances data, int bins) throws Exception
+    {
+        // with bins, predictions are accumulated into bounded histograms instead of being stored one by one
         super(data);
+        this.streaming = bins > 0 ? new StreamingEvaluation(bins) : null;
+    }
+
+    public boolean isStreaming()
+    {
+        return streaming != null;
+    }
+
+    public StreamingEvaluation getStreaming()
+    {
+        return streaming;
+    }
+
+    @Override
+    public double[] evaluateModel(Classifier classifier, Instances data, Object... forPredictionsPrinting) throws Exception
+    {
+        // every instance is timed and recorded here, so that both stored and streaming evaluations get latencies
+        double[] predictions = new double[data.numInstances()];
+        boolean batch = classifier instanceof BatchPredictor && ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction();
+        if (batch)
+        {
+            // predict in chunks, so that no more than a chunk of distributions is kept at a time
+            for (int from = 0; from < data.numInstances(); from += BATCH_CHUNK_SIZE)
+            {
+                int to = Math.min(data.numInstances(), from + BATCH_CHUNK_SIZE);
+                double[][] distributions = predict((BatchPredictor) classifier, new Instances(data, from, to - from), latencies);
+                for (int i = from; i < to; i++)
+                    predictions[i] = recordPrediction(distributions[i - from], data.instance(i));
+            }
+        }
+        else
+        {
+            for (int i = 0; i < data.numInstances(); i++)
+                predictions[i] = evaluateModelOnceAndRecordPrediction(classifier, data.instance(i));
+        }
+
+        return predictions;
+    }
+
+    @Override
+    public double evaluateModelOnceAndRecordPrediction(Classifier classifier, Instance instance) throws Exception
+    {
+        return recordPrediction(predict(classifier, instance, latencies), instance);
+    }
+
+    public static double[] predict(Classifier classifier, Instance instance, LatencyHistogram latencies) throws Exception
+    {
+        // as in weka.classifiers.Evaluation, the class value is hidden from the classifier
+        Instance classMissing = (Instance) instance.copy();
+        classMissing.setDataset(instance.dataset());
+        classMissing.setClassMissing();
+
+        long start = System.nanoTime();
+        double[] distribution = classifier.distributionForInstance(classMissing);
+        latencies.record(System.nanoTime() - start);
+
+        return distribution;
+    }
+
+    public static double[][] predict(BatchPredictor classifier, Instances instances, LatencyHistogram latencies) throws Exception
+    {
+        Instances classMissing = new Instances(instances, instances.numInstances());
+        for (Instance instance : instances)
+        {
+            Instance copied = (Instance) instance.copy();
+            copied.setClassMissing();
+            classMissing.add(copied);
+        }
+
+        // messages predicted together share the batch time, which is the latency each one would see amortized
+        long start = System.nanoTime();
+        double[][] distributions = classifier.distributionsForInstances(classMissing);
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < distributions.length; i++)
+            latencies.record(elapsed / distributions.length);
+
+        return distributions;
+    }
+
+    public LatencyHistogram getLatencies()
+    {
+        return latencies;
+    }
+
+    public double recordPrediction(double[] distribution, Instance instance) throws Exception
+    {
+        // a distribution computed elsewhere (e.g. on another thread) is accounted exactly as if it had been computed here
+        if (streaming == null)
+            return super.evaluateModelOnceAndRecordPrediction(distribution, instance);
+
+        return record(distribution, instance);
+    }
+
+    private double record(double[] distribution, Instance instance)
+    {
+        // as in weka.classifiers.Evaluation, instances without a class value are not evaluated
+        if (distribution == null || instance.classIsMissing())
+            return Utils.missingValue();
+
+        streaming.record((int) instance.classValue(), distribution, instance.weight());
+        return distribution[Utils.maxIndex(distribution)] > 0 ? Utils.maxIndex(distribution) : Utils.missingValue();
     }
 
     public void markTrainStart()
     {
-        this.trainStart = System.currentTimeMillis();
+        this.trainStart = System.nanoTime();
+        this.trainUsage.start();
     }
 
     public void markTrainEnd()
     {
-        this.trainEnd = System.currentTimeMillis();
+        this.trainEnd = System.nanoTime();
+        this.trainUsage.stop();
     }
 
     public void markTestStart()
     {
-        this.testStart = System.currentTimeMillis();
+        this.testStart = System.nanoTime();
+        this.testUsage.start();
     }
 
     public void markTestEnd()
     {
-        this.testEnd = System.currentTimeMillis();
+        this.testEnd = System.nanoTime();
+        this.testUsage.stop();
+    }
+
+    public void addTestingWork(long cpuTime, long allocatedBytes)
+    {
+        // work done by other threads on behalf of this evaluation
+        this.testUsage.add(cpuTime, allocatedBytes);
     }
 
     public long trainingTime()
     {
-        return Math.abs(trainEnd - trainStart);
+        return TimeUnit.NANOSECONDS.toMillis(Math.abs(trainEnd - trainStart));
     }
 
     public long testingTime()
     {
-        return Math.abs(testEnd - testStart);
+        return TimeUnit.NANOSECONDS.toMillis(Math.abs(testEnd - testStart));
+    }
+
+    public double messagesPerSecond()
+    {
+        // wall time of the whole test phase, measured in nanoseconds so that fast classifiers do not round to zero
+        long nanos = testEnd - testStart;
+        return nanos > 0 ? latencies.getCount() / (nanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0.0;
+    }
+
+    public long trainingCpuTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(trainUsage.getCpuTime());
+    }
+
+    public long testingCpuTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(testUsage.getCpuTime());
+    }
+
+    public ModelFootprint getFootprint()
+    {
+        return footprint;
+    }
+
+    public void setFootprint(ModelFootprint footprint)
+    {
+        this.footprint = footprint;
+    }
+
+    public ResourceUsage getTrainingUsage()
+    {
+        return trainUsage;
+    }
+
+    public ResourceUsage getTestingUsage()
+    {
+        return testUsage;
     }
 }
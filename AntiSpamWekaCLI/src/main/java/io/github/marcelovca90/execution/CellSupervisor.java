@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.evaluation.Outcome;
+import io.github.marcelovca90.evaluation.TimedEvaluation;
+
+public class CellSupervisor
+{
+    private static final Logger LOGGER = LogManager.getLogger(CellSupervisor.class);
+    private static final long POLL_INTERVAL = 100L;
+    private static final long GRACE_PERIOD = 10_000L;
+
+    public TimedEvaluation run(Callable<TimedEvaluation> cell, long timeout, long heapBudget) throws Exception
+    {
+        // without limits there is nothing to supervise
+        if (timeout <= 0 && heapBudget <= 0)
+            return cell.call();
+
+        FutureTask<TimedEvaluation> task = new FutureTask<>(cell);
+        Thread thread = new Thread(task, "supervised-cell");
+        thread.setDaemon(true);
+
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        Outcome outcome = null;
+
+        long baseline = getRetainedHeap();
+        thread.start();
+        try
+        {
+            while (outcome == null)
+            {
+                try
+                {
+                    return task.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+                catch (TimeoutException e)
+                {
+                    // the budget is charged with the heap that survives collection while the cell runs, so short-lived garbage
+                    // does not count but whatever the cell keeps does, including what its helper threads keep
+                    if (System.currentTimeMillis() >= deadline)
+                        outcome = Outcome.TIMEOUT;
+                    else if (heapBudget > 0 && getRetainedHeap() - baseline > heapBudget)
+                        outcome = Outcome.OUT_OF_MEMORY;
+                }
+                catch (ExecutionException e)
+                {
+                    if (e.getCause() instanceof OutOfMemoryError)
+                        outcome = Outcome.OUT_OF_MEMORY;
+                    else if (e.getCause() instanceof Exception)
+                        throw (Exception) e.getCause();
+                    else
+                        throw e;
+                }
+            }
+        }
+        finally
+        {
+            if (!task.isDone())
+                cancel(task, thread);
+        }
+
+        throw new CellLimitExceededException(outcome);
+    }
+
+    public TimedEvaluation runForked(ForkedCell cell, long timeout, long heapBudget) throws Exception
+    {
+        // the cell runs in its own JVM, whose maximum heap is the budget (dataset included) and which is killed on timeout
+        File input = File.createTempFile("cell", ".in");
+        File output = File.createTempFile("cell", ".out");
+        try
+        {
+            try (ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(input))))
+            {
+                stream.writeObject(cell);
+            }
+
+            List<String> command = new ArrayList<>(Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-XX:+ExitOnOutOfMemoryError"));
+            if (heapBudget > 0)
+                command.add("-Xmx" + Math.max(1L, heapBudget / FileUtils.ONE_MB) + "m");
+            command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), ForkedCell.class.getName(), input.getPath(), output.getPath()));
+
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            try
+            {
+                if (timeout > 0 ? !process.waitFor(timeout, TimeUnit.MILLISECONDS) : process.waitFor() < 0)
+                    throw new CellLimitExceededException(Outcome.TIMEOUT);
+            }
+            finally
+            {
+                if (process.isAlive())
+                    process.destroyForcibly().waitFor();
+            }
+
+            if (process.exitValue() == ForkedCell.OUT_OF_MEMORY_STATUS)
+                throw new CellLimitExceededException(Outcome.OUT_OF_MEMORY);
+            if (output.length() == 0)
+                throw new IOException("Forked cell exited with status " + process.exitValue() + " without a result.");
+
+            Object result;
+            try (ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(output))))
+            {
+                result = stream.readObject();
+            }
+            if (result instanceof Exception)
+                throw (Exception) result;
+            return (TimedEvaluation) result;
+        }
+        finally
+        {
+            FileUtils.deleteQuietly(input);
+            FileUtils.deleteQuietly(output);
+        }
+    }
+
+    private void cancel(FutureTask<TimedEvaluation> task, Thread thread)
+    {
+        // cancellation is cooperative: stopping the thread could leave Weka and shared helpers in a corrupt state
+        task.cancel(true);
+        try
+        {
+            thread.join(GRACE_PERIOD);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // most Weka classifiers never check for interruption; such a cell is abandoned and its result discarded
+        // (it trains its own copy of the classifier, and forkCells=true runs cells in a worker that can be killed)
+        if (thread.isAlive())
+            LOGGER.warn("Cell did not react to interruption within {} ms and is left running in the background.", GRACE_PERIOD);
+    }
+
+    private long getRetainedHeap()
+    {
+        // heap in use right after the most recent collection of each pool; the heap is shared, so under
+        // concurrent runs this also includes what the other cells keep
+        long retained = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null)
+                retained += usage.getUsed();
+        }
+        return retained;
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.OutputStreamAppender;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+import io.github.marcelovca90.configuration.Configuration;
+import io.github.marcelovca90.configuration.ConfigurationLoader;
+import io.github.marcelovca90.evaluation.EvaluationHelper;
+
+public class Daemon implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(Daemon.class);
+
+    public static final int DEFAULT_PORT = 4590;
+    public static final int DEFAULT_RESIDENT_DATASETS = 4;
+
+    // a submission is a command, followed by the length and bytes of a run.properties payload
+    static final String RUN = "RUN";
+    static final String RESUME = "RESUME";
+    static final String SHUTDOWN = "SHUTDOWN";
+
+    // the reply is the log of the experiment, terminated by a line with its exit status
+    static final String EXIT = "EXIT ";
+
+    // a run.properties file is a few kilobytes; anything much larger is not a submission
+    static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+
+    // the daemon does not share the client's working directory, so these must arrive as absolute paths
+    static final List<String> PATH_KEYS = Arrays.asList("metadata", "costHistory", "journal", "searchLog");
+
+    private final Runner runner;
+    private final ConfigurationLoader configLoader;
+    private final EvaluationHelper evaluationHelper;
+    private final ServerSocket serverSocket;
+
+    public Daemon(Runner runner, int port, int residentDatasets) throws IOException
+    {
+        this.runner = runner;
+        this.configLoader = new ConfigurationLoader();
+        this.evaluationHelper = new EvaluationHelper();
+
+        // only local clients may submit experiments
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+
+        // keep loaded datasets between submissions; loaded classes and compiled code are kept by the JVM itself
+        runner.keepDatasetsResident(residentDatasets);
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    public void serve()
+    {
+        LOGGER.info("Daemon listening on port {}.", getPort());
+
+        // submissions are run one at a time, since every experiment may already use all cores
+        while (!serverSocket.isClosed())
+        {
+            try (Socket socket = serverSocket.accept())
+            {
+                if (!handle(socket))
+                {
+                    close();
+                }
+            }
+            catch (SocketException e)
+            {
+                if (!serverSocket.isClosed())
+                    LOGGER.error("Connection with client was lost.", e);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                LOGGER.error("Could not handle submission.", e);
+            }
+        }
+
+        LOGGER.info("Daemon stopped.");
+    }
+
+    private boolean handle(Socket socket) throws IOException
+    {
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream outputStream = socket.getOutputStream();
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), true);
+
+        String command = inputStream.readUTF();
+        int length = inputStream.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES)
+        {
+            LOGGER.error("Rejected submission of {} bytes.", length);
+            writer.println(EXIT + 1);
+            return true;
+        }
+        byte[] payload = new byte[length];
+        inputStream.readFully(payload);
+
+        if (SHUTDOWN.equals(command))
+        {
+            writer.println(EXIT + 0);
+            return false;
+        }
+
+        Configuration config = configLoader.load(new ByteArrayInputStream(payload));
+        if (config == null || !(RUN.equals(command) || RESUME.equals(command)))
+        {
+            writer.println(EXIT + 1);
+            return true;
+        }
+
+        List<String> relativePaths = getRelativePaths(payload);
+        if (!relativePaths.isEmpty())
+        {
+            writer.println("Paths must be absolute: " + String.join(", ", relativePaths));
+            writer.println(EXIT + 1);
+            return true;
+        }
+
+        // stream everything logged while the experiment runs back to the client
+        Appender appender = attach(outputStream, "daemon-" + socket.getPort());
+        int status = 0;
+        try
+        {
+            runner.run(config, RESUME.equals(command));
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("Experiment failed.", e);
+            status = 1;
+        }
+        finally
+        {
+            detach(appender);
+            evaluationHelper.reset();
+        }
+
+        writer.println(EXIT + status);
+        return true;
+    }
+
+    private List<String> getRelativePaths(byte[] payload) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(payload));
+        return PATH_KEYS
+            .stream()
+            .filter(key -> StringUtils.isNotBlank(properties.getProperty(key)) && !new File(properties.getProperty(key)).isAbsolute())
+            .map(key -> key + "=" + properties.getProperty(key))
+            .collect(Collectors.toList());
+    }
+
+    private Appender attach(OutputStream outputStream, String name)
+    {
+        // the socket is closed by the daemon, not by the appender
+        PatternLayout layout = PatternLayout.newBuilder().withPattern("%d %p %m%n").build();
+        Appender appender = OutputStreamAppender.newBuilder().setTarget(new CloseShieldOutputStream(outputStream)).withName(name).withLayout(layout).build();
+        appender.start();
+
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getConfiguration().getRootLogger().addAppender(appender, null, null);
+        context.updateLoggers();
+
+        return appender;
+    }
+
+    private void detach(Appender appender)
+    {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getConfiguration().getRootLogger().removeAppender(appender.getName());
+        context.updateLoggers();
+        appender.stop();
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not close daemon socket.", e);
+        }
+    }
+}
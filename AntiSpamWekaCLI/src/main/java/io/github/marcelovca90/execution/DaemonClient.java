@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+public class DaemonClient
+{
+    private final int port;
+    private final PrintStream out;
+
+    public DaemonClient(int port, PrintStream out)
+    {
+        this.port = port;
+        this.out = out;
+    }
+
+    public int submit(String filename, boolean resume) throws IOException
+    {
+        return send(resume ? Daemon.RESUME : Daemon.RUN, resolvePaths(FileUtils.readFileToByteArray(new File(filename))));
+    }
+
+    public int shutdown() throws IOException
+    {
+        return send(Daemon.SHUTDOWN, new byte[0]);
+    }
+
+    static byte[] resolvePaths(byte[] payload) throws IOException
+    {
+        // relative paths are resolved against the client's working directory, as they would be by a local run
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(payload));
+        boolean resolved = false;
+        for (String key : Daemon.PATH_KEYS)
+        {
+            String value = properties.getProperty(key);
+            if (StringUtils.isNotBlank(value) && !new File(value).isAbsolute())
+            {
+                properties.setProperty(key, new File(value).getAbsolutePath());
+                resolved = true;
+            }
+        }
+
+        if (!resolved)
+            return payload;
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        properties.store(outputStream, null);
+        return outputStream.toByteArray();
+    }
+
+    private int send(String command, byte[] payload) throws IOException
+    {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+        {
+            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            outputStream.writeUTF(command);
+            outputStream.writeInt(payload.length);
+            outputStream.write(payload);
+            outputStream.flush();
+
+            // echo the daemon's log until it reports the exit status of the experiment
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.startsWith(Daemon.EXIT))
+                    return Integer.parseInt(line.substring(Daemon.EXIT.length()));
+                out.println(line);
+            }
+        }
+
+        throw new IOException("Daemon closed the connection before the experiment finished.");
+    }
+}
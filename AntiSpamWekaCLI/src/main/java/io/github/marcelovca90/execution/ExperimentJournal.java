@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.evaluation.Outcome;
+
+public class ExperimentJournal implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(ExperimentJournal.class);
+    private static final String SEPARATOR = "\t";
+
+    private final String filename;
+    private final Map<String, Entry> entries;
+    private final FileOutputStream outputStream;
+    private final ToLongFunction<String> fingerprinter;
+    private final Map<String, Long> fingerprints;
+    private final String settings;
+
+    public ExperimentJournal(String filename, boolean resume, ToLongFunction<String> fingerprinter, String settings) throws IOException
+    {
+        this.filename = filename;
+        this.entries = new HashMap<>();
+        this.fingerprinter = fingerprinter;
+        this.fingerprints = new ConcurrentHashMap<>();
+        // the settings that change results (e.g. balancing, feature shrinking, split) are kept as a digest next to every entry
+        this.settings = checksum(settings);
+
+        File file = new File(filename);
+        if (resume && file.exists())
+        {
+            read(file);
+        }
+        else if (file.length() > 0)
+        {
+            // a new experiment starts a new journal; the previous one is kept aside rather than resumed by mistake later
+            Files.move(file.toPath(), Paths.get(filename + ".previous"), StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Moved previous journal {} to {}.previous.", filename, filename);
+        }
+        if (file.getParentFile() != null)
+        {
+            file.getParentFile().mkdirs();
+        }
+
+        // within an experiment the journal is only ever appended to; later entries of the same cell take precedence
+        this.outputStream = new FileOutputStream(file, true);
+    }
+
+    public Entry get(String folder, String className, String options, int seed)
+    {
+        // entries only match while the dataset files and the run settings are the ones they were computed with
+        return entries.get(buildKey(folder, fingerprint(folder), settings, className, options, seed));
+    }
+
+    public synchronized void append(Entry entry)
+    {
+        String payload = fingerprint(entry.getFolder()) + SEPARATOR + settings + SEPARATOR + entry.format();
+        String line = checksum(payload) + SEPARATOR + payload + System.lineSeparator();
+
+        try
+        {
+            outputStream.write(line.getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            outputStream.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not append to journal file " + filename + ".", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        outputStream.close();
+    }
+
+    private void read(File file) throws IOException
+    {
+        int discarded = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                // a torn or corrupt line (e.g. the JVM died while writing it) fails the checksum and is ignored
+                String[] fields = line.split(SEPARATOR, 4);
+                Entry entry = null;
+                if (fields.length == 4 && fields[0].equals(checksum(line.substring(fields[0].length() + 1))))
+                    entry = Entry.parse(fields[3]);
+
+                if (entry != null)
+                    entries.put(buildKey(entry.getFolder(), fields[1], fields[2], entry.getClassName(), entry.getOptions(), entry.getSeed()), entry);
+                else
+                    discarded++;
+            }
+        }
+
+        LOGGER.info("Read {} completed cell(s) from journal {} ({} line(s) discarded).", entries.size(), filename, discarded);
+    }
+
+    private String fingerprint(String folder)
+    {
+        return String.valueOf(fingerprints.computeIfAbsent(folder, fingerprinter::applyAsLong));
+    }
+
+    private static String buildKey(String folder, String fingerprint, String settings, String className, String options, int seed)
+    {
+        return String.join(SEPARATOR, folder, fingerprint, settings, className, options.replaceAll("\\s", " "), String.valueOf(seed));
+    }
+
+    private static String checksum(String payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    public static class Entry
+    {
+        private final String folder;
+        private final String className;
+        private final String options;
+        private final int seed;
+        private final int numFeatures;
+        private final Outcome outcome;
+        private final Map<String, Double> metrics;
+
+        public Entry(String folder, String className, String options, int seed, int numFeatures, Map<String, Double> metrics)
+        {
+            this(folder, className, options, seed, numFeatures, null, metrics);
+        }
+
+        public Entry(String folder, String className, String options, int seed, Outcome outcome)
+        {
+            // a cell cancelled for exceeding its limits is journaled too, so that resuming does not run it again
+            this(folder, className, options, seed, 0, outcome, Collections.emptyMap());
+        }
+
+        private Entry(String folder, String className, String options, int seed, int numFeatures, Outcome outcome, Map<String, Double> metrics)
+        {
+            this.folder = folder;
+            this.className = className;
+            this.options = options;
+            this.seed = seed;
+            this.numFeatures = numFeatures;
+            this.outcome = outcome;
+            this.metrics = metrics;
+        }
+
+        public String getFolder()
+        {
+            return folder;
+        }
+
+        public String getClassName()
+        {
+            return className;
+        }
+
+        public String getOptions()
+        {
+            return options;
+        }
+
+        public int getSeed()
+        {
+            return seed;
+        }
+
+        public int getNumFeatures()
+        {
+            return numFeatures;
+        }
+
+        public Outcome getOutcome()
+        {
+            return outcome;
+        }
+
+        public Map<String, Double> getMetrics()
+        {
+            return metrics;
+        }
+
+        private String format()
+        {
+            String formattedMetrics = metrics.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(";"));
+            return String.join(SEPARATOR, folder, className, options.replaceAll("\\s", " "), String.valueOf(seed), String.valueOf(numFeatures), outcome != null ? outcome.name() : "", formattedMetrics);
+        }
+
+        private static Entry parse(String payload)
+        {
+            String[] fields = payload.split(SEPARATOR, -1);
+            if (fields.length != 7)
+                return null;
+
+            try
+            {
+                Outcome outcome = fields[5].isEmpty() ? null : Outcome.valueOf(fields[5]);
+                Map<String, Double> metrics = new LinkedHashMap<>();
+                Arrays.stream(fields[6].split(";")).filter(s -> !s.isEmpty()).map(s -> s.split("=", 2)).forEach(kv -> metrics.put(kv[0], Double.parseDouble(kv[1])));
+                return new Entry(fields[0], fields[1], fields[2], Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), outcome, metrics);
+            }
+            catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+            {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.commons.lang3.tuple.Triple;
+
+import io.github.marcelovca90.configuration.Configuration;
+import io.github.marcelovca90.data.DatasetMetadata;
+import io.github.marcelovca90.data.SplitPlan;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+public class ForkedCell implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    // exit status of a worker that ran out of heap, as set by -XX:+ExitOnOutOfMemoryError
+    static final int OUT_OF_MEMORY_STATUS = 3;
+    static final int FAILED_STATUS = 1;
+
+    private final Configuration config;
+    private final DatasetMetadata metadata;
+    private final Instances dataset;
+    private final Triple<String, String, String> classNamesOptionsAndLogNames;
+    private final Classifier classifier;
+    private final SplitPlan plan;
+    private final boolean includeEmpty;
+    private final boolean saveModel;
+    private final int seed;
+    private final double splitPercentage;
+
+    public ForkedCell(Configuration config, DatasetMetadata metadata, Instances dataset, Triple<String, String, String> classNamesOptionsAndLogNames, Classifier classifier,
+        SplitPlan plan, boolean includeEmpty, boolean saveModel, int seed, double splitPercentage)
+    {
+        this.config = config;
+        this.metadata = metadata;
+        this.dataset = dataset;
+        this.classNamesOptionsAndLogNames = classNamesOptionsAndLogNames;
+        this.classifier = classifier;
+        this.plan = plan;
+        this.includeEmpty = includeEmpty;
+        this.saveModel = saveModel;
+        this.seed = seed;
+        this.splitPercentage = splitPercentage;
+    }
+
+    public Configuration getConfig()
+    {
+        return config;
+    }
+
+    public DatasetMetadata getMetadata()
+    {
+        return metadata;
+    }
+
+    public Instances getDataset()
+    {
+        return dataset;
+    }
+
+    public Triple<String, String, String> getClassNamesOptionsAndLogNames()
+    {
+        return classNamesOptionsAndLogNames;
+    }
+
+    public Classifier getClassifier()
+    {
+        return classifier;
+    }
+
+    public SplitPlan getPlan()
+    {
+        // null when the classifier is streamed from the raw files instead
+        return plan;
+    }
+
+    public boolean shouldIncludeEmpty()
+    {
+        return includeEmpty;
+    }
+
+    public boolean shouldSaveModel()
+    {
+        return saveModel;
+    }
+
+    public int getSeed()
+    {
+        return seed;
+    }
+
+    public double getSplitPercentage()
+    {
+        return splitPercentage;
+    }
+
+    // entry point of the worker JVM: reads the cell from the first file and writes its evaluation (or failure) to the second
+    public static void main(String[] args) throws Exception
+    {
+        ForkedCell cell;
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(args[0]))))
+        {
+            cell = (ForkedCell) input.readObject();
+        }
+
+        Object result;
+        int status;
+        try
+        {
+            result = new Runner().runForked(cell);
+            status = 0;
+        }
+        catch (Exception e)
+        {
+            result = e;
+            status = FAILED_STATUS;
+        }
+
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(args[1]))))
+        {
+            output.writeObject(result);
+        }
+
+        System.exit(status);
+    }
+}
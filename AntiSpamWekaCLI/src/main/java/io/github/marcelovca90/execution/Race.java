@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.inference.TTest;
+
+public class Race
+{
+    private final int finalists;
+    private final double eta;
+    private final double alpha;
+
+    public Race(int finalists, double eta, double alpha)
+    {
+        this.finalists = finalists;
+        this.eta = eta;
+        this.alpha = alpha;
+    }
+
+    public List<Integer> survivors(List<double[]> scores)
+    {
+        // candidates whose runs were cancelled have no scores and are always eliminated
+        List<Integer> ranked = IntStream
+            .range(0, scores.size())
+            .filter(i -> scores.get(i) != null)
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> StatUtils.mean(scores.get(i))).reversed())
+            .collect(Collectors.toList());
+
+        if (ranked.isEmpty())
+            return ranked;
+
+        // only the top 1/eta survive, plus the candidates statistically tied with the last one kept
+        int keep = Math.max(finalists, (int) Math.ceil(scores.size() / eta));
+        double[] cutoff = scores.get(ranked.get(Math.min(keep, ranked.size()) - 1));
+        List<Integer> survivors = new ArrayList<>();
+        for (int rank = 0; rank < ranked.size(); rank++)
+        {
+            int candidate = ranked.get(rank);
+            if (rank < keep || isTied(scores.get(candidate), cutoff))
+                survivors.add(candidate);
+        }
+
+        survivors.sort(Comparator.naturalOrder());
+        return survivors;
+    }
+
+    public double getEta()
+    {
+        return eta;
+    }
+
+    public int getFinalists()
+    {
+        return finalists;
+    }
+
+    private boolean isTied(double[] candidate, double[] cutoff)
+    {
+        // runs share seeds and splits, so the samples are paired; a single run cannot show a tie
+        if (Arrays.equals(candidate, cutoff))
+            return true;
+        if (candidate.length < 2)
+            return false;
+
+        double pValue = new TTest().pairedTTest(cutoff, candidate);
+        return !Double.isNaN(pValue) && pValue >= alpha;
+    }
+}
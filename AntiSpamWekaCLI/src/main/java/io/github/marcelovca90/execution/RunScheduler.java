@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.evaluation.TimedEvaluation;
+
+public class RunScheduler implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(RunScheduler.class);
+
+    // relative cost per instance and feature of each algorithm family, for classifiers without recorded history;
+    // exact class names are matched before package prefixes, and anything else counts as a plain tree or linear model
+    private static final Map<String, Double> COST_PRIORS = new LinkedHashMap<>();
+    private static final double DEFAULT_COST_PRIOR = 1.0;
+
+    static
+    {
+        COST_PRIORS.put("weka.classifiers.functions.MultilayerPerceptron", 50.0);
+        COST_PRIORS.put("weka.classifiers.functions.MLPClassifier", 50.0);
+        COST_PRIORS.put("weka.classifiers.functions.Dl4jMlpClassifier", 50.0);
+        COST_PRIORS.put("weka.classifiers.functions.SMO", 20.0);
+        COST_PRIORS.put("weka.classifiers.functions.LibSVM", 20.0);
+        COST_PRIORS.put("weka.classifiers.trees.RandomForest", 10.0);
+        COST_PRIORS.put("weka.classifiers.rules.ZeroR", 0.1);
+        COST_PRIORS.put("weka.classifiers.bayes.NaiveBayes", 0.1);
+        COST_PRIORS.put("weka.classifiers.bayes.NaiveBayesUpdateable", 0.1);
+        COST_PRIORS.put("weka.classifiers.bayes.NaiveBayesMultinomial", 0.1);
+        COST_PRIORS.put("weka.classifiers.bayes.AveragedNDependenceEstimators.", 50.0);
+        COST_PRIORS.put("net.sourceforge.wekaclassalgos.neural.multilayerperceptron.", 50.0);
+        COST_PRIORS.put("weka.classifiers.lazy.", 50.0);
+        COST_PRIORS.put("weka.classifiers.meta.", 10.0);
+    }
+
+    private final ForkJoinPool pool;
+    private final String historyFilename;
+    private final Properties history;
+
+    public RunScheduler(int parallelism, String historyFilename)
+    {
+        this.pool = new ForkJoinPool(parallelism);
+        this.historyFilename = historyFilename;
+        this.history = new Properties();
+
+        if (StringUtils.isNotBlank(historyFilename) && new File(historyFilename).exists())
+        {
+            try (InputStream input = new FileInputStream(historyFilename))
+            {
+                history.load(input);
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Could not read cost history file " + historyFilename + ".", e);
+            }
+        }
+    }
+
+    public List<Future<TimedEvaluation>> schedule(List<Task> tasks)
+    {
+        // longest expected task first, so that slow cells do not end up as the tail of the grid
+        double[] estimates = tasks.stream().mapToDouble(this::estimate).toArray();
+        Integer[] order = IntStream.range(0, tasks.size()).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> estimates[i]).reversed());
+
+        List<Future<TimedEvaluation>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++)
+            futures.add(null);
+
+        for (int i : order)
+        {
+            Task task = tasks.get(i);
+            futures.set(i, pool.submit(() ->
+            {
+                TimedEvaluation evaluation = task.getCallable().call();
+                record(task, evaluation);
+                return evaluation;
+            }));
+        }
+
+        return futures;
+    }
+
+    public double estimate(Task task)
+    {
+        // cost is kept per instance and feature, so that it carries over to datasets of other sizes
+        double size = Math.max(1.0, (double) task.getNumInstances() * task.getNumFeatures());
+        return getRate(task.getCostKey()) * size;
+    }
+
+    public void save()
+    {
+        if (StringUtils.isBlank(historyFilename))
+            return;
+
+        synchronized (history)
+        {
+            try (OutputStream output = new FileOutputStream(historyFilename))
+            {
+                history.store(output, "expected run time (ms) per instance and feature");
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Unable to save cost history file " + historyFilename + ".", e);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        pool.shutdown();
+        save();
+    }
+
+    private double getRate(String costKey)
+    {
+        synchronized (history)
+        {
+            String rate = history.getProperty(costKey + ".rate");
+            if (rate != null)
+                return Double.parseDouble(rate);
+
+            // without history, scale the family prior by how the known classifiers compare to their own priors on this machine
+            double scale = history
+                .stringPropertyNames()
+                .stream()
+                .filter(k -> k.endsWith(".rate"))
+                .mapToDouble(k -> Double.parseDouble(history.getProperty(k)) / getCostPrior(StringUtils.removeEnd(k, ".rate")))
+                .average()
+                .orElse(1.0);
+            return scale * getCostPrior(costKey);
+        }
+    }
+
+    static double getCostPrior(String costKey)
+    {
+        String className = StringUtils.substringBefore(costKey, " ");
+        return COST_PRIORS
+            .entrySet()
+            .stream()
+            .filter(e -> e.getKey().endsWith(".") ? className.startsWith(e.getKey()) : className.equals(e.getKey()))
+            .mapToDouble(Map.Entry::getValue)
+            .findFirst()
+            .orElse(DEFAULT_COST_PRIOR);
+    }
+
+    private void record(Task task, TimedEvaluation evaluation)
+    {
+        double size = Math.max(1.0, (double) task.getNumInstances() * task.getNumFeatures());
+        double rate = (evaluation.trainingTime() + evaluation.testingTime()) / size;
+
+        synchronized (history)
+        {
+            String rateKey = task.getCostKey() + ".rate";
+            String countKey = task.getCostKey() + ".count";
+            long count = Long.parseLong(history.getProperty(countKey, "0"));
+            double mean = Double.parseDouble(history.getProperty(rateKey, "0"));
+
+            history.setProperty(rateKey, String.valueOf(mean + (rate - mean) / (count + 1)));
+            history.setProperty(countKey, String.valueOf(count + 1));
+        }
+    }
+
+    public static class Task
+    {
+        private final String costKey;
+        private final int numInstances;
+        private final int numFeatures;
+        private final Callable<TimedEvaluation> callable;
+
+        public Task(String costKey, int numInstances, int numFeatures, Callable<TimedEvaluation> callable)
+        {
+            this.costKey = costKey;
+            this.numInstances = numInstances;
+            this.numFeatures = numFeatures;
+            this.callable = callable;
+        }
+
+        public String getCostKey()
+        {
+            return costKey;
+        }
+
+        public int getNumInstances()
+        {
+            return numInstances;
+        }
+
+        public int getNumFeatures()
+        {
+            return numFeatures;
+        }
+
+        public Callable<TimedEvaluation> getCallable()
+        {
+            return callable;
+        }
+    }
+}
@@ -21,34 +21,81 @@
  ******************************************************************************/
 package io.github.marcelovca90.execution;
 
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.commons.math3.primes.Primes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import io.github.marcelovca90.analysis.TsneAnalyser;
 import io.github.marcelovca90.classification.ClassifierBuilder;
+import io.github.marcelovca90.classification.HyperparameterSearch;
+import io.github.marcelovca90.classification.SearchSpace;
 import io.github.marcelovca90.configuration.Configuration;
 import io.github.marcelovca90.configuration.ConfigurationLoader;
 import io.github.marcelovca90.data.DatasetHelper;
 import io.github.marcelovca90.data.DatasetMetadata;
+import io.github.marcelovca90.data.DatasetPrefetcher;
+import io.github.marcelovca90.data.DatasetView;
+import io.github.marcelovca90.data.InstanceStream;
+import io.github.marcelovca90.data.SplitPlan;
 import io.github.marcelovca90.evaluation.EvaluationHelper;
+import io.github.marcelovca90.evaluation.ModelFootprint;
+import io.github.marcelovca90.evaluation.Outcome;
+import io.github.marcelovca90.evaluation.ParallelEvaluator;
 import io.github.marcelovca90.evaluation.TimedEvaluation;
+import io.github.marcelovca90.inference.CompiledClassifier;
+import io.github.marcelovca90.inference.TreeBenchmark;
+import io.github.marcelovca90.inference.TreeCodeGenerator;
+import io.github.marcelovca90.inference.TreeCompiler;
+import io.github.marcelovca90.serving.BatchScorer;
+import io.github.marcelovca90.serving.ScoringServer;
+import io.github.marcelovca90.serving.ScoringService;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.functions.MultilayerPerceptron;
 import weka.classifiers.meta.AdaBoostM1;
 import weka.classifiers.trees.REPTree;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
 
 public class Runner
 {
+    private static final Logger LOGGER = LogManager.getLogger(Runner.class);
+    private static final double SPLIT_PERCENTAGE = 0.5;
+    private static final double VALIDATION_SPLIT_PERCENTAGE = 0.6;
+
     private ConfigurationLoader configLoader;
     private DatasetHelper datasetHelper;
     private TsneAnalyser tsneAnalyser;
     private ClassifierBuilder classifierBuilder;
     private EvaluationHelper evaluationHelper;
+    private CellSupervisor cellSupervisor;
+    private Map<Pair<Integer, Double>, SplitPlan> splitPlans;
+    private ExperimentJournal journal;
+    private HyperparameterSearch hyperparameterSearch;
+    private ParallelEvaluator parallelEvaluator;
+    private Map<String, Instances> residentDatasets;
 
     public Runner()
     {
@@ -57,122 +104,872 @@ public class Runner
         tsneAnalyser = new TsneAnalyser();
         classifierBuilder = new ClassifierBuilder();
         evaluationHelper = new EvaluationHelper();
+        cellSupervisor = new CellSupervisor();
+        splitPlans = new ConcurrentHashMap<>();
     }
 
     public void run() throws Exception
+    {
+        run(false);
+    }
+
+    public void run(boolean resume) throws Exception
     {
         // read configuration from properties file
-        Configuration config = configLoader.load();
-        Set<DatasetMetadata> datasetMetadata = datasetHelper.loadMetadata(config.getMetadataPath());
+        run(configLoader.load(), resume);
+    }
 
-        for (DatasetMetadata metadata : datasetMetadata)
+    public void keepDatasetsResident(int capacity)
+    {
+        // least recently used datasets are evicted once the capacity is exceeded
+        residentDatasets = Collections.synchronizedMap(new LinkedHashMap<String, Instances>(capacity, 0.75f, true)
         {
-            // read dataset from filesystem
-            Instances dataset = datasetHelper.loadDataset(metadata, config.shouldLoadArff());
+            private static final long serialVersionUID = 1L;
 
-            // check if it is a t-SNE analysis
-            if (config.isTsneAnalysis())
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Instances> eldest)
             {
-                tsneAnalyser.run(metadata, dataset, true);
+                return size() > capacity;
             }
-            // otherwise, it is a train/run execution
-            else
+        });
+    }
+
+    public void run(Configuration config, boolean resume) throws Exception
+    {
+        Set<DatasetMetadata> datasetMetadata = datasetHelper.loadMetadata(config.getMetadataPath());
+        configure(config);
+
+        // record every completed cell; when resuming, cells already in the journal are not run again
+        journal = StringUtils.isNotBlank(config.getJournal()) ? new ExperimentJournal(config.getJournal(), resume, datasetHelper::computeFingerprint, describeSettings(config)) : null;
+        DatasetPrefetcher prefetcher = null;
+        RunScheduler scheduler = null;
+        try
+        {
+            Set<DatasetMetadata> journaledMetadata = datasetMetadata.stream().filter(m -> !config.isTsneAnalysis() && isJournaled(config, m)).collect(Collectors.toSet());
+
+            // load the next dataset(s) in background while the current one is being processed
+            List<DatasetMetadata> pendingMetadata = datasetMetadata.stream().filter(m -> !journaledMetadata.contains(m) && !isResident(config, m)).collect(Collectors.toList());
+            prefetcher = new DatasetPrefetcher(datasetHelper, pendingMetadata, config.shouldLoadArff(), config.getPrefetchDatasets(), config.getPrefetchMemoryBudget());
+
+            // when every classifier can be trained incrementally, datasets do not need to be loaded at all
+            boolean streamAll = config.shouldStreamUpdateable() && !config.isTsneAnalysis()
+                && config.getClassNamesOptionsAndLogNames().stream().allMatch(c -> classifierBuilder.isUpdateable(c.getLeft()));
+
+            // classifier runs may execute concurrently, each one on its own copy
+            scheduler = config.getParallelRuns() > 1 ? new RunScheduler(config.getParallelRuns(), config.getCostHistory()) : null;
+
+            for (DatasetMetadata metadata : datasetMetadata)
             {
-                // select attributes
-                if (config.shouldShrinkFeatures())
+                // read dataset from filesystem
+                Instances dataset = streamAll || journaledMetadata.contains(metadata) ? null : loadDataset(config, metadata, prefetcher);
+
+                // check if it is a t-SNE analysis
+                if (config.isTsneAnalysis())
                 {
-                    dataset = datasetHelper.selectAttributes(dataset);
+                    tsneAnalyser.run(metadata, dataset, true);
+                }
+                // otherwise, it is a train/run execution
+                else
+                {
+                    // select attributes
+                    if (config.shouldShrinkFeatures() && dataset != null)
+                    {
+                        dataset = datasetHelper.selectAttributes(dataset);
+                    }
+                    if (dataset != null)
+                    {
+                        metadata.setNumFeaturesAfterReduction(dataset.numAttributes() - 1);
+                    }
+
+                    // split plans refer to rows of the current dataset only
+                    splitPlans.clear();
+
+                    // run every classifier either in configuration order or through the cost-aware scheduler
+                    // in racing mode, only the finalists of a race on growing subsamples get the full experiment
+                    List<Triple<String, String, String>> methods = config.isRacing() && dataset != null ? race(config, metadata, dataset) : config.getClassNamesOptionsAndLogNames();
+
+                    if (scheduler == null)
+                    {
+                        runSequentially(config, metadata, dataset, methods);
+                    }
+                    else
+                    {
+                        runScheduled(config, metadata, dataset, methods, scheduler);
+                        scheduler.save();
+                    }
+
+                    // save to arff
+                    if (config.shouldSaveArff() && dataset != null)
+                    {
+                        datasetHelper.saveToArff(metadata, dataset);
+                    }
                 }
-                metadata.setNumFeaturesAfterReduction(dataset.numAttributes() - 1);
+            }
+        }
+        finally
+        {
+            // background loaders, scheduler threads and the journal are released even when an experiment fails,
+            // since a daemon keeps serving other submissions in the same JVM
+            if (prefetcher != null)
+            {
+                prefetcher.close();
+            }
+
+            if (scheduler != null)
+            {
+                scheduler.close();
+            }
+
+            if (journal != null)
+            {
+                journal.close();
+            }
+        }
+    }
+
+    private void configure(Configuration config)
+    {
+        datasetHelper.setUseSnapshot(config.shouldUseSnapshot());
+        datasetHelper.setMemoryMapRawFiles(config.shouldMemoryMapRawFiles());
+        datasetHelper.setSparseDensityThreshold(config.getSparseDensityThreshold());
+
+        // options declared as ranges or lists are tuned on an inner validation split of each training set
+        hyperparameterSearch = config.getSearchTrials() > 0
+            ? new HyperparameterSearch(HyperparameterSearch.Strategy.valueOf(config.getSearchStrategy().toUpperCase()), config.getSearchTrials(), config.getSearchParallelism(), config.getSearchValidationFolds(), config.getTargetMetric(), config.getSearchLog())
+            : null;
+
+        // test sets may be scored on several threads, with predictions recorded in their original order
+        parallelEvaluator = config.getTestParallelism() > 1 ? new ParallelEvaluator(config.getTestParallelism()) : null;
+    }
+
+    private boolean isResident(Configuration config, DatasetMetadata metadata)
+    {
+        return residentDatasets != null && residentDatasets.containsKey(getResidentKey(config, metadata));
+    }
+
+    private String getResidentKey(Configuration config, DatasetMetadata metadata)
+    {
+        return metadata.getFolder() + (config.shouldLoadArff() ? ".arff" : "");
+    }
+
+    private Instances loadDataset(Configuration config, DatasetMetadata metadata, DatasetPrefetcher prefetcher)
+    {
+        if (residentDatasets == null)
+        {
+            return prefetcher.load(metadata);
+        }
+
+        // a resident dataset is handed out as a copy, so that one experiment cannot alter it for the next
+        String key = getResidentKey(config, metadata);
+        Instances resident = residentDatasets.get(key);
+        if (resident == null)
+        {
+            resident = prefetcher.load(metadata);
+            if (resident != null)
+                residentDatasets.put(key, resident);
+        }
+        else
+        {
+            metadata.setNumClasses(resident.numClasses());
+            metadata.setNumInstances(resident.numInstances());
+            LOGGER.info("Reusing resident dataset {}.", metadata.getFolder());
+        }
+
+        return resident != null ? new Instances(resident) : null;
+    }
+
+    private void runSequentially(Configuration config, DatasetMetadata metadata, Instances dataset, List<Triple<String, String, String>> methods) throws Exception
+    {
+        for (Triple<String, String, String> classNamesOptionsAndLogNames : methods)
+        {
+            // parse the classifier class name, options and log name
+            String className = classNamesOptionsAndLogNames.getLeft();
+            String options = classNamesOptionsAndLogNames.getMiddle();
+            String logFilename = classNamesOptionsAndLogNames.getRight();
+
+            // build the classifier
+            Classifier classifier = classifierBuilder.withClassName(className).withOptions(options).customize(metadata).build();
+
+            // add logger for this method
+            evaluationHelper.addAppender(classifier, logFilename);
+
+            // initialize random number generator seed
+            int seed = 2;
+
+            // split with percentage depending of whether the classifier uses a validation set or not
+            double splitPercentage = getSplitPercentage(classifier);
 
-                for (Triple<String, String, String> classNamesOptionsAndLogNames : config.getClassNamesOptionsAndLogNames())
+            // run {config.getRuns()} executions, or until the target interval is met in adaptive mode
+            for (int run = 0; !shouldStop(config, classifier, run); run++)
+            {
+                ExperimentJournal.Entry entry = journal != null ? journal.get(metadata.getFolder(), className, options, seed) : null;
+                if (entry != null)
+                {
+                    restore(metadata, classifier, entry);
+                }
+                else
                 {
-                    // parse the classifier class name, options and log name
-                    String className = classNamesOptionsAndLogNames.getLeft();
-                    String options = classNamesOptionsAndLogNames.getMiddle();
-                    String logFilename = classNamesOptionsAndLogNames.getRight();
+                    try
+                    {
+                        // every run trains its own copy, so that a cancelled run still busy in the background cannot touch the next one
+                        Classifier runClassifier = AbstractClassifier.makeCopy(classifier);
+                        TimedEvaluation evaluation = runSupervised(config, metadata, dataset, classNamesOptionsAndLogNames, runClassifier, seed, splitPercentage);
+                        report(config, metadata, className, options, classifier, runClassifier, evaluation, seed);
+                    }
+                    catch (CellLimitExceededException e)
+                    {
+                        recordOutcome(metadata, className, options, classifier, seed, e.getOutcome());
+                    }
+                }
+
+                // update random number generator seed
+                seed = Primes.nextPrime(seed + 1);
+            }
+
+            // evaluate all executions for this method
+            evaluationHelper.summarize(metadata, classifier);
 
-                    // build the classifier
-                    Classifier classifier = classifierBuilder.withClassName(className).withOptions(options).customize(metadata).build();
+            // remove logger for this method
+            evaluationHelper.removeAppender(classifier, logFilename);
+        }
+    }
 
-                    // add logger for this method
-                    evaluationHelper.addAppender(classifier, logFilename);
+    private void runScheduled(Configuration config, DatasetMetadata metadata, Instances dataset, List<Triple<String, String, String>> classNamesOptionsAndLogNames, RunScheduler scheduler) throws Exception
+    {
+        List<Classifier> classifiers = new ArrayList<>();
+        List<List<Cell>> grid = new ArrayList<>();
 
-                    // initialize random number generator seed
-                    int seed = 2;
+        // turn the classifier x run grid into cells, each one with its own classifier copy and seed
+        int initialRuns = config.isAdaptiveRuns() ? config.getMinRuns() : config.getRuns();
+        for (Triple<String, String, String> method : classNamesOptionsAndLogNames)
+        {
+            Classifier classifier = classifierBuilder.withClassName(method.getLeft()).withOptions(method.getMiddle()).customize(metadata).build();
+            classifiers.add(classifier);
+            grid.add(createCells(config, metadata, dataset, method, classifier, 2, initialRuns));
+        }
+        schedule(scheduler, grid.stream().flatMap(List::stream).collect(Collectors.toList()));
 
-                    // run {config.getRuns()} executions
-                    for (int run = 0; run < config.getRuns(); run++)
+        // results are reported in configuration and run order, regardless of the order they complete in
+        for (int i = 0; i < classifiers.size(); i++)
+        {
+            Classifier classifier = classifiers.get(i);
+            Triple<String, String, String> method = classNamesOptionsAndLogNames.get(i);
+
+            evaluationHelper.addAppender(classifier, method.getRight());
+
+            int runs = 0;
+            int nextSeed = 2;
+            List<Cell> cells = grid.get(i);
+            do
+            {
+                for (Cell cell : cells)
+                {
+                    nextSeed = Primes.nextPrime(cell.getSeed() + 1);
+                    if (shouldStop(config, classifier, runs))
+                    {
+                        cell.cancel();
+                    }
+                    else
                     {
-                        Instances datasetCopy = new Instances(dataset);
-
-                        // balance
-                        if (config.shouldBalanceClasses())
-                        {
-                            datasetHelper.balance(datasetCopy, seed);
-                        }
-
-                        // shuffle
-                        datasetHelper.shuffle(datasetCopy, seed);
-
-                        // split with percentage depending of whether the classifier uses a validation set or not
-                        Class<?>[] validatorClassifiers = { AdaBoostM1.class, MultilayerPerceptron.class, REPTree.class };
-                        double splitPercentage = Arrays.stream(validatorClassifiers).anyMatch(c -> c.isInstance(classifier)) ? 0.6 : 0.5;
-                        Pair<Instances, Instances> datasets = datasetHelper.split(datasetCopy, splitPercentage);
-                        Instances trainSet = datasets.getLeft();
-                        Instances testSet = datasets.getRight();
-
-                        // add empty instances
-                        if (config.shouldIncludeEmpty())
-                        {
-                            datasetHelper.addEmptyInstances(testSet, metadata);
-                        }
-
-                        // create evaluation object
-                        TimedEvaluation evaluation = new TimedEvaluation(testSet);
-
-                        // train
-                        evaluation.markTrainStart();
-                        classifier.buildClassifier(trainSet);
-                        evaluation.markTrainEnd();
-
-                        // test
-                        evaluation.markTestStart();
-                        evaluation.evaluateModel(classifier, testSet);
-                        evaluation.markTestEnd();
-
-                        // evaluate single execution
-                        evaluationHelper.compute(classifier, evaluation);
-                        evaluationHelper.print(metadata, classifier);
-
-                        // persist model
-                        if (config.shouldSaveModel())
-                        {
-                            datasetHelper.saveModel(metadata, classifier, seed);
-                        }
-
-                        // update random number generator seed
-                        seed = Primes.nextPrime(seed + 1);
+                        reportCell(config, metadata, method, classifier, cell);
+                        runs++;
                     }
+                }
+
+                // in adaptive mode, keep adding batches as wide as the pool until the target interval is met
+                if (shouldStop(config, classifier, runs))
+                {
+                    cells = Collections.emptyList();
+                }
+                else
+                {
+                    cells = createCells(config, metadata, dataset, method, classifier, nextSeed, Math.min(config.getParallelRuns(), config.getMaxRuns() - runs));
+                    schedule(scheduler, cells);
+                }
+            }
+            while (!cells.isEmpty());
+
+            evaluationHelper.summarize(metadata, classifier);
+            evaluationHelper.removeAppender(classifier, method.getRight());
+        }
+    }
+
+    private List<Cell> createCells(Configuration config, DatasetMetadata metadata, Instances dataset, Triple<String, String, String> method, Classifier classifier, int firstSeed, int count) throws Exception
+    {
+        List<Cell> cells = new ArrayList<>();
+
+        int numInstances = dataset != null ? dataset.size() : metadata.getNumInstances();
+        int numFeatures = dataset != null ? dataset.numAttributes() - 1 : metadata.getNumFeaturesBeforeReduction();
+        double splitPercentage = getSplitPercentage(classifier);
+
+        int seed = firstSeed;
+        for (int run = 0; run < count; run++)
+        {
+            int runSeed = seed;
+            if (journal == null || journal.get(metadata.getFolder(), method.getLeft(), method.getMiddle(), runSeed) == null)
+            {
+                Classifier runClassifier = AbstractClassifier.makeCopy(classifier);
+                RunScheduler.Task task = new RunScheduler.Task(method.getLeft() + " " + method.getMiddle(), numInstances, numFeatures,
+                    () -> runSupervised(config, metadata, dataset, method, runClassifier, runSeed, splitPercentage));
+                cells.add(new Cell(runSeed, runClassifier, task));
+            }
+            else
+            {
+                cells.add(new Cell(runSeed, null, null));
+            }
+
+            seed = Primes.nextPrime(seed + 1);
+        }
+
+        return cells;
+    }
+
+    private void schedule(RunScheduler scheduler, List<Cell> cells)
+    {
+        // only the cells missing from the journal are scheduled
+        List<Cell> pending = cells.stream().filter(c -> c.getTask() != null).collect(Collectors.toList());
+        List<Future<TimedEvaluation>> futures = scheduler.schedule(pending.stream().map(Cell::getTask).collect(Collectors.toList()));
+        for (int i = 0; i < pending.size(); i++)
+            pending.get(i).setFuture(futures.get(i));
+    }
+
+    private void reportCell(Configuration config, DatasetMetadata metadata, Triple<String, String, String> method, Classifier classifier, Cell cell) throws Exception
+    {
+        if (cell.getTask() == null)
+        {
+            restore(metadata, classifier, journal.get(metadata.getFolder(), method.getLeft(), method.getMiddle(), cell.getSeed()));
+            return;
+        }
+
+        try
+        {
+            report(config, metadata, method.getLeft(), method.getMiddle(), classifier, cell.getClassifier(), cell.getFuture().get(), cell.getSeed());
+        }
+        catch (ExecutionException e)
+        {
+            if (!(e.getCause() instanceof CellLimitExceededException))
+                throw e;
+            recordOutcome(metadata, method.getLeft(), method.getMiddle(), classifier, cell.getSeed(), ((CellLimitExceededException) e.getCause()).getOutcome());
+        }
+    }
+
+    private boolean shouldStop(Configuration config, Classifier classifier, int runs)
+    {
+        if (!config.isAdaptiveRuns())
+            return runs >= config.getRuns();
+
+        // stop as soon as the interval of the target metric is narrow enough, but never before the minimum
+        return runs >= config.getMaxRuns()
+            || (runs >= config.getMinRuns() && evaluationHelper.hasConverged(classifier, config.getTargetMetric(), config.getTargetHalfWidth()));
+    }
+
+    private double getSplitPercentage(Classifier classifier)
+    {
+        Class<?>[] validatorClassifiers = { AdaBoostM1.class, MultilayerPerceptron.class, REPTree.class };
+        return Arrays.stream(validatorClassifiers).anyMatch(c -> c.isInstance(classifier)) ? VALIDATION_SPLIT_PERCENTAGE : SPLIT_PERCENTAGE;
+    }
+
+    private String describeSettings(Configuration config)
+    {
+        // every setting that changes the metrics of a cell, so that a journal is not resumed under different ones
+        return String.join(";",
+            "balanceClasses=" + config.shouldBalanceClasses(),
+            "shrinkFeatures=" + config.shouldShrinkFeatures(),
+            "includeEmpty=" + config.shouldIncludeEmpty(),
+            "evaluationBins=" + config.getEvaluationBins(),
+            "streamUpdateable=" + config.shouldStreamUpdateable(),
+            "splitPercentage=" + SPLIT_PERCENTAGE,
+            "validationSplitPercentage=" + VALIDATION_SPLIT_PERCENTAGE,
+            "searchTrials=" + config.getSearchTrials(),
+            "searchStrategy=" + config.getSearchStrategy(),
+            "searchValidationFolds=" + config.getSearchValidationFolds());
+    }
+
+    private TimedEvaluation runSupervised(Configuration config, DatasetMetadata metadata, Instances dataset, Triple<String, String, String> classNamesOptionsAndLogNames, Classifier classifier, int seed, double splitPercentage) throws Exception
+    {
+        // wall-clock limit and heap budget configured for this method, if any
+        Pair<Long, Long> limits = config.getCellLimits().getOrDefault(classNamesOptionsAndLogNames, Pair.of(0L, 0L));
+
+        // a forked worker can be killed even when the classifier ignores interruption
+        if (config.shouldForkCells())
+        {
+            // the split plan is computed here, so that it is still shared by every classifier with the same seed
+            boolean streamed = isStreamed(config, classifier);
+            SplitPlan plan = streamed ? null : getSplitPlan(config, metadata, dataset, seed, splitPercentage);
+            ForkedCell cell = new ForkedCell(config, metadata, streamed ? null : dataset, classNamesOptionsAndLogNames, classifier, plan, config.shouldIncludeEmpty(), config.shouldSaveModel(), seed, splitPercentage);
+            return cellSupervisor.runForked(cell, limits.getLeft(), limits.getRight());
+        }
+
+        return cellSupervisor.run(() -> runOnce(config, metadata, dataset, classNamesOptionsAndLogNames, classifier, seed, splitPercentage), limits.getLeft(), limits.getRight());
+    }
 
-                    // evaluate all executions for this method
-                    evaluationHelper.summarize(metadata, classifier);
+    TimedEvaluation runForked(ForkedCell cell) throws Exception
+    {
+        // runs inside the worker JVM, which saves the model itself since the trained classifier stays there
+        configure(cell.getConfig());
+        TimedEvaluation evaluation = cell.getPlan() != null
+            ? runInMemory(cell.getConfig(), cell.getMetadata(), cell.getDataset(), cell.getClassNamesOptionsAndLogNames(), cell.getClassifier(), cell.getPlan(), cell.shouldIncludeEmpty())
+            : runStreaming(cell.getConfig(), cell.getMetadata(), cell.getClassifier(), cell.getSeed(), cell.getSplitPercentage());
+
+        if (cell.shouldSaveModel())
+        {
+            datasetHelper.saveModel(cell.getMetadata(), cell.getClassifier(), cell.getSeed());
+        }
+
+        return evaluation;
+    }
+
+    private TimedEvaluation runOnce(Configuration config, DatasetMetadata metadata, Instances dataset, Triple<String, String, String> classNamesOptionsAndLogNames, Classifier classifier, int seed, double splitPercentage) throws Exception
+    {
+        // updateable classifiers may be trained and tested without holding the dataset in memory
+        if (isStreamed(config, classifier))
+        {
+            return runStreaming(config, metadata, classifier, seed, splitPercentage);
+        }
+        else
+        {
+            return runInMemory(config, metadata, dataset, classNamesOptionsAndLogNames, classifier, getSplitPlan(config, metadata, dataset, seed, splitPercentage), config.shouldIncludeEmpty());
+        }
+    }
+
+    private boolean isStreamed(Configuration config, Classifier classifier)
+    {
+        return config.shouldStreamUpdateable() && classifier instanceof UpdateableClassifier;
+    }
 
-                    // remove logger for this method
-                    evaluationHelper.removeAppender(classifier, logFilename);
+    private boolean isJournaled(Configuration config, DatasetMetadata metadata)
+    {
+        // in adaptive mode the number of runs is only known once the recorded metrics are restored
+        if (journal == null || config.isAdaptiveRuns())
+            return false;
+
+        for (Triple<String, String, String> classNamesOptionsAndLogNames : config.getClassNamesOptionsAndLogNames())
+        {
+            int seed = 2;
+            for (int run = 0; run < config.getRuns(); run++)
+            {
+                if (journal.get(metadata.getFolder(), classNamesOptionsAndLogNames.getLeft(), classNamesOptionsAndLogNames.getMiddle(), seed) == null)
+                    return false;
+                seed = Primes.nextPrime(seed + 1);
+            }
+        }
+
+        return true;
+    }
+
+    private void recordOutcome(DatasetMetadata metadata, String className, String options, Classifier classifier, int seed, Outcome outcome)
+    {
+        evaluationHelper.recordOutcome(metadata, classifier, outcome);
+
+        if (journal != null)
+        {
+            journal.append(new ExperimentJournal.Entry(metadata.getFolder(), className, options, seed, outcome));
+        }
+    }
+
+    private void restore(DatasetMetadata metadata, Classifier classifier, ExperimentJournal.Entry entry)
+    {
+        // a cell that hit its limits is not retried on resume either
+        if (entry.getOutcome() != null)
+        {
+            evaluationHelper.recordOutcome(metadata, classifier, entry.getOutcome());
+            return;
+        }
+
+        // a journaled cell contributes its recorded metrics without being run again
+        metadata.setNumFeaturesAfterReduction(entry.getNumFeatures());
+        evaluationHelper.restore(classifier, entry.getMetrics());
+        evaluationHelper.print(metadata, classifier);
+    }
+
+    private void report(Configuration config, DatasetMetadata metadata, String className, String options, Classifier classifier, Classifier runClassifier, TimedEvaluation evaluation, int seed)
+    {
+        // evaluate single execution
+        Map<String, Double> metrics = evaluationHelper.compute(classifier, evaluation);
+        evaluationHelper.print(metadata, classifier);
+
+        // journal the completed cell
+        if (journal != null)
+        {
+            journal.append(new ExperimentJournal.Entry(metadata.getFolder(), className, options, seed, metadata.getNumFeaturesAfterReduction(), metrics));
+        }
+
+        // persist model, unless it was trained and saved by a forked worker
+        if (config.shouldSaveModel() && !config.shouldForkCells())
+        {
+            datasetHelper.saveModel(metadata, runClassifier, seed);
+        }
+    }
+
+    private TimedEvaluation runInMemory(Configuration config, DatasetMetadata metadata, Instances dataset, Triple<String, String, String> classNamesOptionsAndLogNames, Classifier classifier, SplitPlan plan, boolean includeEmpty) throws Exception
+    {
+        // split according to the plan shared by every classifier with the same seed and split percentage
+        Pair<Instances, Instances> datasets = datasetHelper.split(dataset, plan);
+        Instances trainSet = datasets.getLeft();
+        Instances testSet = datasets.getRight();
+
+        // add empty instances
+        if (includeEmpty)
+        {
+            datasetHelper.addEmptyInstances(testSet, metadata);
+        }
+
+        // tune searchable options on the training set only, then train with the best ones found
+        if (hyperparameterSearch != null && SearchSpace.isSearchable(classNamesOptionsAndLogNames.getMiddle()))
+        {
+            SearchSpace space = new SearchSpace(classNamesOptionsAndLogNames.getMiddle());
+            HyperparameterSearch.Trial best = hyperparameterSearch.search(classNamesOptionsAndLogNames.getLeft(), space, metadata, trainSet, plan.getSeed());
+            ((OptionHandler) classifier).setOptions(Utils.splitOptions(best.getOptions()));
+        }
+
+        // create evaluation object
+        TimedEvaluation evaluation = new TimedEvaluation(testSet, config.getEvaluationBins());
+
+        // train
+        // the phase is closed even when training fails, so its heap sampler does not outlive the run
+        evaluation.markTrainStart();
+        try
+        {
+            classifier.buildClassifier(trainSet);
+        }
+        finally
+        {
+            evaluation.markTrainEnd();
+        }
+
+        // measure what the trained model costs to store, load and keep in memory
+        if (config.shouldMeasureFootprint())
+        {
+            evaluation.setFootprint(ModelFootprint.measure(classifier));
+        }
+
+        // test, optionally with trees flattened to arrays and linear models reduced to a dot product
+        Classifier testClassifier = config.shouldCompileModels() ? CompiledClassifier.compileIfPossible(classifier, trainSet) : classifier;
+        evaluation.markTestStart();
+        try
+        {
+            if (parallelEvaluator != null)
+            {
+                parallelEvaluator.evaluate(evaluation, testClassifier, testSet);
+            }
+            else
+            {
+                evaluation.evaluateModel(testClassifier, testSet);
+            }
+        }
+        finally
+        {
+            evaluation.markTestEnd();
+        }
+
+        return evaluation;
+    }
+
+    private SplitPlan getSplitPlan(Configuration config, DatasetMetadata metadata, Instances dataset, int seed, double splitPercentage)
+    {
+        return splitPlans.computeIfAbsent(Pair.of(seed, splitPercentage), key -> createSplitPlan(config, metadata, dataset, seed, splitPercentage));
+    }
+
+    private SplitPlan createSplitPlan(Configuration config, DatasetMetadata metadata, Instances dataset, int seed, double splitPercentage)
+    {
+        SplitPlan plan = null;
+
+        if (config.shouldPersistSplitPlans())
+        {
+            plan = datasetHelper.loadSplitPlan(metadata, seed, splitPercentage, config.shouldBalanceClasses(), dataset.size());
+        }
+
+        if (plan == null)
+        {
+            plan = computeSplitPlan(config, dataset, seed, splitPercentage);
+
+            if (config.shouldPersistSplitPlans())
+            {
+                datasetHelper.saveSplitPlan(metadata, plan);
+            }
+        }
+
+        return plan;
+    }
+
+    private SplitPlan computeSplitPlan(Configuration config, Instances dataset, int seed, double splitPercentage)
+    {
+        // balance, shuffle and split operate on indices; only the resulting sets are materialized
+        DatasetView datasetView = new DatasetView(dataset);
+
+        // balance
+        if (config.shouldBalanceClasses())
+        {
+            datasetHelper.balance(datasetView, seed);
+        }
+
+        // shuffle
+        datasetHelper.shuffle(datasetView, seed);
+
+        return new SplitPlan(datasetView, seed, splitPercentage, config.shouldBalanceClasses());
+    }
+
+    private List<Triple<String, String, String>> race(Configuration config, DatasetMetadata metadata, Instances dataset) throws Exception
+    {
+        Race race = new Race(config.getRacingFinalists(), config.getRacingEta(), config.getRacingAlpha());
+        List<Triple<String, String, String>> candidates = new ArrayList<>(config.getClassNamesOptionsAndLogNames());
+        double fraction = config.getRacingInitialFraction();
+        int runs = config.getRacingInitialRuns();
+
+        // successive halving: survivors are promoted to eta times larger samples and more runs
+        for (int round = 1; candidates.size() > race.getFinalists() && fraction < 1.0; round++)
+        {
+            Instances sample = datasetHelper.subsample(dataset, fraction, round);
+
+            List<double[]> scores = new ArrayList<>();
+            for (Triple<String, String, String> candidate : candidates)
+                scores.add(raceCandidate(config, metadata, sample, candidate, runs));
+
+            List<Triple<String, String, String>> survivors = race.survivors(scores).stream().map(candidates::get).collect(Collectors.toList());
+            LOGGER.info("Racing round {} on {} instances with {} run(s) kept {} of {} method(s).", round, sample.size(), runs, survivors.size(), candidates.size());
+
+            candidates = survivors;
+            fraction *= race.getEta();
+            runs = Math.min(config.getRuns(), (int) Math.ceil(runs * race.getEta()));
+        }
+
+        LOGGER.info("Racing finalists: {}.", candidates.stream().map(c -> (c.getLeft() + " " + c.getMiddle()).trim()).collect(Collectors.joining(", ")));
+
+        return candidates;
+    }
+
+    private double[] raceCandidate(Configuration config, DatasetMetadata metadata, Instances sample, Triple<String, String, String> candidate, int runs) throws Exception
+    {
+        Classifier classifier = classifierBuilder.withClassName(candidate.getLeft()).withOptions(candidate.getMiddle()).customize(metadata).build();
+        Pair<Long, Long> limits = config.getCellLimits().getOrDefault(candidate, Pair.of(0L, 0L));
+        double splitPercentage = getSplitPercentage(classifier);
+
+        // every candidate sees the same seeds and splits, so that their scores can be compared pairwise;
+        // the empty instances are sized for the full dataset and would swamp a small subsample, so they are left out
+        double[] scores = new double[runs];
+        int seed = 2;
+        for (int run = 0; run < runs; run++)
+        {
+            SplitPlan plan = computeSplitPlan(config, sample, seed, splitPercentage);
+            try
+            {
+                Classifier runClassifier = AbstractClassifier.makeCopy(classifier);
+                TimedEvaluation evaluation = config.shouldForkCells()
+                    ? cellSupervisor.runForked(new ForkedCell(config, metadata, sample, candidate, runClassifier, plan, false, false, seed, splitPercentage), limits.getLeft(), limits.getRight())
+                    : cellSupervisor.run(() -> runInMemory(config, metadata, sample, candidate, runClassifier, plan, false), limits.getLeft(), limits.getRight());
+                scores[run] = evaluationHelper.measure(evaluation).get(config.getTargetMetric());
+            }
+            catch (CellLimitExceededException e)
+            {
+                LOGGER.info("Racing candidate {} was cancelled ({}).", candidate.getLeft(), e.getOutcome());
+                return null;
+            }
+            seed = Primes.nextPrime(seed + 1);
+        }
+
+        return scores;
+    }
+
+    private TimedEvaluation runStreaming(Configuration config, DatasetMetadata metadata, Classifier classifier, int seed, double splitPercentage) throws Exception
+    {
+        TimedEvaluation evaluation;
+        Instances structure;
+
+        // first pass: train on the instances assigned to the train set
+        try (InstanceStream stream = datasetHelper.openInstanceStream(metadata, config.shouldLoadArff(), config.getStreamChunkSize(), seed))
+        {
+            structure = stream.getStructure();
+            evaluation = new TimedEvaluation(structure, config.getEvaluationBins());
+            Random random = new Random(seed);
+
+            evaluation.markTrainStart();
+            try
+            {
+                classifier.buildClassifier(structure);
+                while (stream.hasNext())
+                {
+                    Instance instance = stream.next();
+                    if (random.nextDouble() < splitPercentage)
+                        ((UpdateableClassifier) classifier).updateClassifier(instance);
                 }
+            }
+            finally
+            {
+                evaluation.markTrainEnd();
+            }
+
+            if (config.shouldMeasureFootprint())
+            {
+                evaluation.setFootprint(ModelFootprint.measure(classifier));
+            }
+        }
+
+        // second pass: replay the same stream and evaluate the remaining instances
+        try (InstanceStream stream = datasetHelper.openInstanceStream(metadata, config.shouldLoadArff(), config.getStreamChunkSize(), seed))
+        {
+            Random random = new Random(seed);
 
-                // save to arff
-                if (config.shouldSaveArff())
+            evaluation.markTestStart();
+            try
+            {
+                while (stream.hasNext())
                 {
-                    datasetHelper.saveToArff(metadata, dataset);
+                    Instance instance = stream.next();
+                    if (random.nextDouble() >= splitPercentage)
+                        evaluation.evaluateModelOnceAndRecordPrediction(classifier, instance);
                 }
+                if (config.shouldIncludeEmpty())
+                {
+                    Instances emptyInstances = new Instances(structure, 0);
+                    datasetHelper.addEmptyInstances(emptyInstances, metadata);
+                    for (Instance instance : emptyInstances)
+                        evaluation.evaluateModelOnceAndRecordPrediction(classifier, instance);
+                }
+            }
+            finally
+            {
+                evaluation.markTestEnd();
             }
         }
+
+        return evaluation;
+    }
+
+    private static class Cell
+    {
+        private final int seed;
+        private final Classifier classifier;
+        private final RunScheduler.Task task;
+        private Future<TimedEvaluation> future;
+
+        Cell(int seed, Classifier classifier, RunScheduler.Task task)
+        {
+            this.seed = seed;
+            this.classifier = classifier;
+            this.task = task;
+        }
+
+        int getSeed()
+        {
+            return seed;
+        }
+
+        Classifier getClassifier()
+        {
+            return classifier;
+        }
+
+        RunScheduler.Task getTask()
+        {
+            return task;
+        }
+
+        Future<TimedEvaluation> getFuture()
+        {
+            return future;
+        }
+
+        void setFuture(Future<TimedEvaluation> future)
+        {
+            this.future = future;
+        }
+
+        void cancel()
+        {
+            if (future != null)
+                future.cancel(true);
+        }
+    }
+
+    private static String getArgument(List<String> arguments, String name, String defaultValue)
+    {
+        int index = arguments.indexOf(name);
+        return index >= 0 && index + 1 < arguments.size() ? arguments.get(index + 1) : defaultValue;
     }
 
     public static void main(String[] args) throws Exception
     {
-        new Runner().run();
+        List<String> arguments = Arrays.asList(args);
+        boolean resume = arguments.contains("--resume");
+        int port = Integer.parseInt(getArgument(arguments, "--port", String.valueOf(Daemon.DEFAULT_PORT)));
+
+        if (!arguments.isEmpty() && "score".equals(arguments.get(0)))
+        {
+            // score a ham/spam-format or ARFF file with a saved model, writing predictions in input order
+            String input = getArgument(arguments, "--input", null);
+            BatchScorer.Format format = BatchScorer.Format.valueOf(getArgument(arguments, "--format", "csv").toUpperCase());
+            String output = getArgument(arguments, "--output", input + ".scores." + format.name().toLowerCase());
+            int threads = Integer.parseInt(getArgument(arguments, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            int chunkSize = Integer.parseInt(getArgument(arguments, "--chunk", "4096"));
+
+            try (InstanceStream stream = new DatasetHelper().openInstanceStream(input, chunkSize);
+                OutputStream outputStream = new FileOutputStream(output))
+            {
+                Classifier model = ScoringService.loadModel(getArgument(arguments, "--model", null));
+                BatchScorer scorer = new BatchScorer(arguments.contains("--compile") ? CompiledClassifier.compileIfPossible(model, stream.getStructure()) : model, threads);
+                scorer.score(stream, outputStream, format);
+            }
+        }
+        else if (!arguments.isEmpty() && "benchmark".equals(arguments.get(0)))
+        {
+            // compare a saved tree model with its flat array and generated forms on a ham/spam-format or ARFF file
+            Classifier model = ScoringService.loadModel(getArgument(arguments, "--model", null));
+            int rounds = Integer.parseInt(getArgument(arguments, "--rounds", "10"));
+
+            Instances data;
+            try (InstanceStream stream = new DatasetHelper().openInstanceStream(getArgument(arguments, "--input", null), 4096))
+            {
+                data = new Instances(stream.getStructure(), 0);
+                while (stream.hasNext())
+                    data.add(stream.next());
+            }
+
+            TreeBenchmark benchmark = new TreeBenchmark();
+            benchmark.run("Flat arrays", model, new TreeCompiler().compile(model, data), data, rounds);
+            benchmark.run("Generated code", model, new TreeCompiler(new TreeCodeGenerator()).compile(model, data), data, rounds);
+        }
+        else if (arguments.contains("--daemon"))
+        {
+            // keep a warmed-up JVM with loaded classes and datasets, and run experiments submitted to it
+            int residentDatasets = Integer.parseInt(getArgument(arguments, "--resident", String.valueOf(Daemon.DEFAULT_RESIDENT_DATASETS)));
+            try (Daemon daemon = new Daemon(new Runner(), port, residentDatasets))
+            {
+                daemon.serve();
+            }
+        }
+        else if (arguments.contains("--submit"))
+        {
+            // relative metadata, journal, costHistory and searchLog paths are resolved against this directory before submitting
+            System.exit(new DaemonClient(port, System.out).submit(getArgument(arguments, "--submit", "run.properties"), resume));
+        }
+        else if (arguments.contains("--serve"))
+        {
+            // score feature vectors in the raw binary layout with a saved model until the process is stopped
+            Classifier model = ScoringService.loadModel(getArgument(arguments, "--serve", null));
+            Instances structure = new DatasetHelper().createStructure(Integer.parseInt(getArgument(arguments, "--attributes", null)));
+            int workers = Integer.parseInt(getArgument(arguments, "--workers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            int maxBatchSize = Integer.parseInt(getArgument(arguments, "--batch", "256"));
+            long maxBatchDelay = Long.parseLong(getArgument(arguments, "--batch-delay", "200"));
+            int httpPort = Integer.parseInt(getArgument(arguments, "--http-port", String.valueOf(ScoringServer.DEFAULT_HTTP_PORT)));
+            int socketPort = Integer.parseInt(getArgument(arguments, "--port", String.valueOf(ScoringServer.DEFAULT_SOCKET_PORT)));
+            InetAddress httpAddress = arguments.contains("--bind") ? InetAddress.getByName(getArgument(arguments, "--bind", null)) : InetAddress.getLoopbackAddress();
+
+            if (arguments.contains("--compile"))
+            {
+                model = CompiledClassifier.compileIfPossible(model, structure);
+            }
+
+            ScoringServer server = new ScoringServer(new ScoringService(model, structure, workers, maxBatchSize, maxBatchDelay), httpAddress, httpPort, socketPort);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+        }
+        else if (arguments.contains("--shutdown"))
+        {
+            System.exit(new DaemonClient(port, System.out).shutdown());
+        }
+        else
+        {
+            new Runner().run(resume);
+        }
     }
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+public class CompiledClassifier extends AbstractClassifier
+{
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = LogManager.getLogger(CompiledClassifier.class);
+
+    private final Classifier original;
+    private final CompiledModel model;
+
+    public CompiledClassifier(Classifier original, CompiledModel model)
+    {
+        this.original = original;
+        this.model = model;
+    }
+
+    public static boolean isCompilable(Classifier classifier)
+    {
+        return TreeCompiler.isCompilable(classifier) || LinearExporter.isExportable(classifier);
+    }
+
+    public static Classifier compileIfPossible(Classifier classifier, Instances header)
+    {
+        // trees become flat arrays and linear models a dot product; anything else is used as it is
+        if (!isCompilable(classifier))
+            return classifier;
+
+        try
+        {
+            CompiledModel model = TreeCompiler.isCompilable(classifier) ? new TreeCompiler().compile(classifier, header) : new LinearExporter().export(classifier, header);
+            LOGGER.info("Compiled {} to {}.", classifier.getClass().getSimpleName(), model.getClass().getSimpleName());
+            return new CompiledClassifier(classifier, model);
+        }
+        catch (UnsupportedOperationException e)
+        {
+            LOGGER.warn("Could not compile {}: {} Using it as it is.", classifier.getClass().getSimpleName(), e.getMessage());
+            return classifier;
+        }
+    }
+
+    public Classifier getOriginal()
+    {
+        return original;
+    }
+
+    public CompiledModel getModel()
+    {
+        return model;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception
+    {
+        throw new UnsupportedOperationException("A compiled classifier cannot be retrained.");
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception
+    {
+        // compiled models that cannot score an instance (e.g. linear ones with missing values) leave it to the original
+        double[] distribution = model.distributionForInstance(instance);
+        return distribution != null ? distribution : original.distributionForInstance(instance);
+    }
+
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction()
+    {
+        return true;
+    }
+
+    @Override
+    public double[][] distributionsForInstances(Instances instances) throws Exception
+    {
+        double[][] rows = new double[instances.numInstances()][];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = instances.instance(i).toDoubleArray();
+
+        double[][] distributions = model.distributionsForValues(rows);
+        for (int i = 0; i < distributions.length; i++)
+            if (distributions[i] == null)
+                distributions[i] = original.distributionForInstance(instances.instance(i));
+
+        return distributions;
+    }
+}
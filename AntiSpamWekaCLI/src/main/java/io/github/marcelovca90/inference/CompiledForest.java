@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import weka.core.Utils;
+
+public class CompiledForest implements CompiledModel
+{
+    private static final long serialVersionUID = 1L;
+
+    private final CompiledTree[] trees;
+    private final int numClasses;
+
+    CompiledForest(CompiledTree[] trees, int numClasses)
+    {
+        this.trees = trees;
+        this.numClasses = numClasses;
+    }
+
+    @Override
+    public double[] distributionForValues(double[] values)
+    {
+        // same aggregation as Bagging: sum the distributions of every member, then normalize unless all are zero
+        double[] sums = new double[numClasses];
+        for (CompiledTree tree : trees)
+            if (!tree.accumulate(values, sums))
+                throw new IllegalStateException("A member of the forest has no distribution for the given values.");
+
+        if (Utils.eq(Utils.sum(sums), 0))
+            return sums;
+
+        Utils.normalize(sums);
+        return sums;
+    }
+
+    CompiledTree[] getTrees()
+    {
+        return trees;
+    }
+}
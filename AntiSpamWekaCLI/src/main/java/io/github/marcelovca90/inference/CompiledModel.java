@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import java.io.Serializable;
+
+import weka.core.Instance;
+
+public interface CompiledModel extends Serializable
+{
+    // values are laid out as the attributes of the training set, with missing values as NaN
+    double[] distributionForValues(double[] values);
+
+    default double[] distributionForInstance(Instance instance)
+    {
+        return distributionForValues(instance.toDoubleArray());
+    }
+
+    default double[][] distributionsForValues(double[][] rows)
+    {
+        double[][] distributions = new double[rows.length][];
+        for (int i = 0; i < rows.length; i++)
+            distributions[i] = distributionForValues(rows[i]);
+
+        return distributions;
+    }
+}
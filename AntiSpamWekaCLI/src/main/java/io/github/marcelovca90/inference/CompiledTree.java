@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import weka.core.Utils;
+
+public class CompiledTree implements CompiledModel
+{
+    private static final long serialVersionUID = 1L;
+
+    public enum Rule
+    {
+        // REPTree, RandomTree and FastRandomTree: "<" splits, missing values weighted by the proportions of each branch
+        PROPORTIONS,
+        // J48: "<=" splits within Utils.SMALL, missing values weighted by the bag sizes of the split model
+        C45
+    }
+
+    private final Rule rule;
+    private final int numClasses;
+
+    // structure of arrays, in breadth-first order so that the children of a node are contiguous
+    private final int[] attribute;
+    private final boolean[] nominal;
+    private final double[] splitPoint;
+    private final int[] firstChild;
+    private final int[] numChildren;
+    private final double[] weight;
+    private final boolean[] empty;
+    private final double[] distribution;
+    private final boolean[] hasDistribution;
+    private final int[] resultNode;
+
+    private transient LeafFinder leafFinder;
+
+    CompiledTree(Rule rule, int numClasses, int[] attribute, boolean[] nominal, double[] splitPoint, int[] firstChild, int[] numChildren, double[] weight, boolean[] empty, double[] distribution, boolean[] hasDistribution)
+    {
+        this.rule = rule;
+        this.numClasses = numClasses;
+        this.attribute = attribute;
+        this.nominal = nominal;
+        this.splitPoint = splitPoint;
+        this.firstChild = firstChild;
+        this.numChildren = numChildren;
+        this.weight = weight;
+        this.empty = empty;
+        this.distribution = distribution;
+        this.hasDistribution = hasDistribution;
+
+        // a node without a distribution of its own answers with the one of its closest ancestor that has it
+        this.resultNode = new int[attribute.length];
+        this.resultNode[0] = hasDistribution[0] ? 0 : -1;
+        for (int node = 0; node < attribute.length; node++)
+            for (int child = firstChild[node]; child < firstChild[node] + numChildren[node]; child++)
+                resultNode[child] = hasDistribution[child] ? child : resultNode[node];
+    }
+
+    @Override
+    public double[] distributionForValues(double[] values)
+    {
+        int end = findLeaf(values);
+        if (end >= 0)
+        {
+            int result = rule == Rule.C45 ? end : resultNode[end];
+            return result >= 0 ? copyDistribution(result) : null;
+        }
+
+        // a missing value on the path: replicate the weighted recursion of the original model from there
+        int node = -(end + 1);
+        return rule == Rule.C45 ? probabilities(node, values, 1) : distribution(node, values);
+    }
+
+    boolean accumulate(double[] values, double[] sums)
+    {
+        int end = findLeaf(values);
+        if (end >= 0)
+        {
+            int result = rule == Rule.C45 ? end : resultNode[end];
+            if (result < 0)
+                return false;
+            for (int j = 0, offset = result * numClasses; j < numClasses; j++)
+                sums[j] += distribution[offset + j];
+            return true;
+        }
+
+        double[] returned = distributionForValues(values);
+        if (returned == null)
+            return false;
+        for (int j = 0; j < numClasses; j++)
+            sums[j] += returned[j];
+        return true;
+    }
+
+    int findLeaf(double[] values)
+    {
+        if (leafFinder != null)
+            return leafFinder.find(values);
+
+        int node = 0;
+        while (attribute[node] >= 0)
+        {
+            double value = values[attribute[node]];
+            if (Double.isNaN(value))
+                return -(node + 1);
+            node = firstChild[node] + branch(node, value);
+        }
+
+        return node;
+    }
+
+    private int branch(int node, double value)
+    {
+        if (nominal[node])
+            return (int) value;
+        else if (rule == Rule.C45)
+            return value - splitPoint[node] < Utils.SMALL || value <= splitPoint[node] ? 0 : 1;
+        else
+            return value < splitPoint[node] ? 0 : 1;
+    }
+
+    private double[] distribution(int node, double[] values)
+    {
+        double[] returned = null;
+
+        if (attribute[node] >= 0)
+        {
+            double value = values[attribute[node]];
+            if (Double.isNaN(value))
+            {
+                returned = new double[numClasses];
+                for (int child = firstChild[node]; child < firstChild[node] + numChildren[node]; child++)
+                {
+                    double[] help = distribution(child, values);
+                    if (help != null)
+                        for (int j = 0; j < numClasses; j++)
+                            returned[j] += weight[child] * help[j];
+                }
+            }
+            else
+            {
+                returned = distribution(firstChild[node] + branch(node, value), values);
+            }
+        }
+
+        if (returned != null)
+            return returned;
+
+        return hasDistribution[node] ? copyDistribution(node) : null;
+    }
+
+    private double[] probabilities(int node, double[] values, double nodeWeight)
+    {
+        double[] probabilities = new double[numClasses];
+
+        if (attribute[node] < 0)
+        {
+            for (int j = 0, offset = node * numClasses; j < numClasses; j++)
+                probabilities[j] = nodeWeight * distribution[offset + j];
+            return probabilities;
+        }
+
+        double value = values[attribute[node]];
+        if (!Double.isNaN(value))
+            return probabilities(firstChild[node] + branch(node, value), values, nodeWeight);
+
+        for (int child = firstChild[node]; child < firstChild[node] + numChildren[node]; child++)
+        {
+            if (!empty[child])
+            {
+                double[] help = probabilities(child, values, weight[child] * nodeWeight);
+                for (int j = 0; j < numClasses; j++)
+                    probabilities[j] += help[j];
+            }
+        }
+
+        return probabilities;
+    }
+
+    private double[] copyDistribution(int node)
+    {
+        double[] copy = new double[numClasses];
+        System.arraycopy(distribution, node * numClasses, copy, 0, numClasses);
+        return copy;
+    }
+
+    void setLeafFinder(LeafFinder leafFinder)
+    {
+        this.leafFinder = leafFinder;
+    }
+
+    Rule getRule()
+    {
+        return rule;
+    }
+
+    int getNumNodes()
+    {
+        return attribute.length;
+    }
+
+    int getNumClasses()
+    {
+        return numClasses;
+    }
+
+    int getAttribute(int node)
+    {
+        return attribute[node];
+    }
+
+    boolean isNominal(int node)
+    {
+        return nominal[node];
+    }
+
+    double getSplitPoint(int node)
+    {
+        return splitPoint[node];
+    }
+
+    int getFirstChild(int node)
+    {
+        return firstChild[node];
+    }
+
+    int getNumChildren(int node)
+    {
+        return numChildren[node];
+    }
+}
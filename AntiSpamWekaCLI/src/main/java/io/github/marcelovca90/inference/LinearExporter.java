@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import static io.github.marcelovca90.inference.TreeCompiler.field;
+import static io.github.marcelovca90.inference.TreeCompiler.optionalField;
+
+import java.util.Arrays;
+import java.util.List;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+public class LinearExporter
+{
+    private static final String SGD = "weka.classifiers.functions.SGD";
+    private static final String SPEGASOS = "weka.classifiers.functions.SPegasos";
+    private static final String SMO = "weka.classifiers.functions.SMO";
+    private static final String LIBLINEAR = "weka.classifiers.functions.LibLINEAR";
+    private static final String VOTED_PERCEPTRON = "weka.classifiers.functions.VotedPerceptron";
+    private static final List<String> EXPORTABLE = Arrays.asList(SGD, SPEGASOS, SMO, LIBLINEAR);
+    private static final int LOGLOSS = 1;
+
+    public static boolean isExportable(Classifier classifier)
+    {
+        return EXPORTABLE.contains(classifier.getClass().getName());
+    }
+
+    public LinearScorer export(Classifier classifier, Instances header)
+    {
+        String className = classifier.getClass().getName();
+        if (VOTED_PERCEPTRON.equals(className))
+            throw new UnsupportedOperationException("VotedPerceptron votes over a sequence of perceptrons and does not reduce to a single weight vector.");
+        if (!EXPORTABLE.contains(className))
+            throw new UnsupportedOperationException(className + " cannot be exported to a linear scorer.");
+        if (header.numClasses() != 2)
+            throw new UnsupportedOperationException("Only binary problems can be exported to a linear scorer.");
+        for (int j = 0; j < header.numAttributes(); j++)
+            if (j != header.classIndex() && !header.attribute(j).isNumeric())
+                throw new UnsupportedOperationException("Only numeric attributes can be exported to a linear scorer.");
+
+        // the weights are read from the protected fields of the trained models, which have no public accessors
+        try
+        {
+            if (SGD.equals(className) || SPEGASOS.equals(className))
+                return exportStochastic(classifier, header);
+            else if (SMO.equals(className))
+                return exportSMO(classifier, header);
+            else
+                return exportLibLINEAR(classifier, header);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new UnsupportedOperationException("Could not read the weights of " + className + ".", e);
+        }
+    }
+
+    private LinearScorer exportStochastic(Classifier classifier, Instances header) throws ReflectiveOperationException
+    {
+        // the bias is kept after the attribute weights
+        double[] trained = (double[]) field(classifier, "m_weights");
+        double[] weights = Arrays.copyOf(trained, header.numAttributes());
+        double bias = trained[trained.length - 1];
+
+        LinearScorer.Link link = ((Integer) field(classifier, "m_loss")) == LOGLOSS ? LinearScorer.Link.LOGISTIC : LinearScorer.Link.THRESHOLD;
+        bias = fold(optionalField(classifier, "m_normalize"), header, weights, bias);
+
+        return new LinearScorer(weights, bias, header.classIndex(), header.numClasses(), 1, 0, link);
+    }
+
+    private LinearScorer exportSMO(Classifier classifier, Instances header) throws ReflectiveOperationException
+    {
+        if ((Boolean) field(classifier, "m_fitLogisticModels"))
+            throw new UnsupportedOperationException("SMO with calibrated logistic models is not supported.");
+
+        // the pair of classes (0, 1) votes for the second class when its output is positive
+        Object binary = ((Object[][]) field(classifier, "m_classifiers"))[0][1];
+        if (!(Boolean) field(binary, "m_KernelIsLinear"))
+            throw new UnsupportedOperationException("SMO can only be exported with a linear kernel.");
+
+        double[] weights = new double[header.numAttributes()];
+        double[] sparseWeights = (double[]) field(binary, "m_sparseWeights");
+        int[] sparseIndices = (int[]) field(binary, "m_sparseIndices");
+        for (int k = 0; k < sparseWeights.length; k++)
+            weights[sparseIndices[k]] = sparseWeights[k];
+        double bias = -(Double) field(binary, "m_b");
+
+        bias = fold(optionalField(classifier, "m_Filter"), header, weights, bias);
+
+        return new LinearScorer(weights, bias, header.classIndex(), header.numClasses(), 1, 0, LinearScorer.Link.THRESHOLD);
+    }
+
+    private LinearScorer exportLibLINEAR(Classifier classifier, Instances header) throws ReflectiveOperationException
+    {
+        if ((Boolean) field(classifier, "m_Normalize"))
+            throw new UnsupportedOperationException("LibLINEAR with normalized instances is not supported.");
+        if ((Boolean) field(classifier, "m_ProbabilityEstimates"))
+            throw new UnsupportedOperationException("LibLINEAR with probability estimates is not supported.");
+
+        // attribute j is feature j + 1, and the bias feature (when there is one) comes after the last one
+        Object model = field(classifier, "m_Model");
+        double[] trained = (double[]) model.getClass().getMethod("getFeatureWeights").invoke(model);
+        int[] labels = (int[]) model.getClass().getMethod("getLabels").invoke(model);
+        int numFeatures = (Integer) model.getClass().getMethod("getNrFeature").invoke(model);
+        double modelBias = (Double) model.getClass().getMethod("getBias").invoke(model);
+
+        double[] weights = new double[header.numAttributes()];
+        System.arraycopy(trained, 0, weights, 0, Math.min(numFeatures, weights.length));
+        double bias = modelBias >= 0 ? trained[numFeatures] * modelBias : 0.0;
+
+        return new LinearScorer(weights, bias, header.classIndex(), header.numClasses(), labels[0], labels[1], LinearScorer.Link.THRESHOLD);
+    }
+
+    private double fold(Object filter, Instances header, double[] weights, double bias) throws ReflectiveOperationException
+    {
+        // an affine filter x' = scale * x + shift is folded into the weights, so that raw rows can be scored directly
+        if (filter == null)
+            return bias;
+
+        double[] scale = new double[weights.length];
+        double[] shift = new double[weights.length];
+        String filterName = filter.getClass().getSimpleName();
+        if ("Normalize".equals(filterName))
+        {
+            double[] min = (double[]) field(filter, "m_MinArray");
+            double[] max = (double[]) field(filter, "m_MaxArray");
+            double factor = (Double) field(filter, "m_Scale");
+            double translation = (Double) field(filter, "m_Translation");
+            for (int j = 0; j < weights.length; j++)
+            {
+                // constant attributes are mapped to zero
+                if (Double.isNaN(min[j]) || max[j] == min[j])
+                    continue;
+                scale[j] = factor / (max[j] - min[j]);
+                shift[j] = translation - min[j] * scale[j];
+            }
+        }
+        else if ("Standardize".equals(filterName))
+        {
+            double[] means = (double[]) field(filter, "m_Means");
+            double[] deviations = (double[]) field(filter, "m_StdDevs");
+            for (int j = 0; j < weights.length; j++)
+            {
+                scale[j] = deviations[j] > 0 ? 1.0 / deviations[j] : 1.0;
+                shift[j] = -means[j] * scale[j];
+            }
+        }
+        else
+        {
+            throw new UnsupportedOperationException(filterName + " filters cannot be folded into a linear scorer.");
+        }
+
+        for (int j = 0; j < weights.length; j++)
+        {
+            if (j == header.classIndex())
+                continue;
+            bias += weights[j] * shift[j];
+            weights[j] *= scale[j];
+        }
+
+        return bias;
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+public class LinearScorer implements CompiledModel
+{
+    private static final long serialVersionUID = 1L;
+
+    public enum Link
+    {
+        // all probability on the positive class when the decision value is above zero, on the negative one otherwise
+        THRESHOLD,
+        // logistic probability of the decision value, computed as SGD and SPegasos do
+        LOGISTIC
+    }
+
+    private final double[] weights;
+    private final double bias;
+    private final int classIndex;
+    private final int numClasses;
+    private final int positiveClass;
+    private final int negativeClass;
+    private final Link link;
+
+    LinearScorer(double[] weights, double bias, int classIndex, int numClasses, int positiveClass, int negativeClass, Link link)
+    {
+        // the class attribute keeps a zero weight, so that rows can be scored as laid out in the dataset
+        this.weights = weights;
+        this.weights[classIndex] = 0.0;
+        this.bias = bias;
+        this.classIndex = classIndex;
+        this.numClasses = numClasses;
+        this.positiveClass = positiveClass;
+        this.negativeClass = negativeClass;
+        this.link = link;
+    }
+
+    public double decision(double[] values)
+    {
+        return dot(values, 0, classIndex) + dot(values, classIndex + 1, weights.length) + bias;
+    }
+
+    public void decisions(double[][] rows, double[] decisions)
+    {
+        for (int i = 0; i < rows.length; i++)
+            decisions[i] = decision(rows[i]);
+    }
+
+    @Override
+    public double[] distributionForValues(double[] values)
+    {
+        // a missing value makes the decision NaN, and such rows are left to the original model
+        double decision = decision(values);
+        return Double.isNaN(decision) ? null : distribution(decision);
+    }
+
+    @Override
+    public double[][] distributionsForValues(double[][] rows)
+    {
+        double[] decisions = new double[rows.length];
+        decisions(rows, decisions);
+
+        double[][] distributions = new double[rows.length][];
+        for (int i = 0; i < rows.length; i++)
+            distributions[i] = Double.isNaN(decisions[i]) ? null : distribution(decisions[i]);
+
+        return distributions;
+    }
+
+    private double[] distribution(double decision)
+    {
+        double[] distribution = new double[numClasses];
+        if (link == Link.LOGISTIC)
+        {
+            if (decision <= 0)
+            {
+                distribution[negativeClass] = 1.0 / (1.0 + Math.exp(decision));
+                distribution[positiveClass] = 1.0 - distribution[negativeClass];
+            }
+            else
+            {
+                distribution[positiveClass] = 1.0 / (1.0 + Math.exp(-decision));
+                distribution[negativeClass] = 1.0 - distribution[positiveClass];
+            }
+        }
+        else
+        {
+            distribution[decision > 0 ? positiveClass : negativeClass] = 1.0;
+        }
+
+        return distribution;
+    }
+
+    private double dot(double[] values, int from, int to)
+    {
+        // independent accumulators break the dependency chain, so that the JIT can pipeline and unroll the loop
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int j = from;
+        for (; j + 3 < to; j += 4)
+        {
+            sum0 += weights[j] * values[j];
+            sum1 += weights[j + 1] * values[j + 1];
+            sum2 += weights[j + 2] * values[j + 2];
+            sum3 += weights[j + 3] * values[j + 3];
+        }
+        for (; j < to; j++)
+            sum0 += weights[j] * values[j];
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+}
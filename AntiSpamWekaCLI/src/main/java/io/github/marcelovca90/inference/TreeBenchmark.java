@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+public class TreeBenchmark
+{
+    private static final Logger LOGGER = LogManager.getLogger(TreeBenchmark.class);
+
+    public double run(String name, Classifier original, CompiledModel compiled, Instances data, int rounds) throws Exception
+    {
+        double[][] values = new double[data.numInstances()][];
+        for (int i = 0; i < values.length; i++)
+            values[i] = data.instance(i).toDoubleArray();
+
+        // the compiled form is only worth measuring if it predicts exactly like the original
+        int mismatches = 0;
+        for (int i = 0; i < values.length; i++)
+            if (!Arrays.equals(original.distributionForInstance(data.instance(i)), compiled.distributionForValues(values[i])))
+                mismatches++;
+        if (mismatches > 0)
+            throw new IllegalStateException(name + " differs from the original model on " + mismatches + " of " + values.length + " instance(s).");
+
+        // the first round only warms up both implementations
+        double checksum = 0.0;
+        long originalNanos = 0L;
+        long compiledNanos = 0L;
+        for (int round = 0; round <= rounds; round++)
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < values.length; i++)
+                checksum += original.distributionForInstance(data.instance(i))[0];
+            long middle = System.nanoTime();
+            for (int i = 0; i < values.length; i++)
+                checksum += compiled.distributionForValues(values[i])[0];
+            long end = System.nanoTime();
+
+            if (round > 0)
+            {
+                originalNanos += middle - start;
+                compiledNanos += end - middle;
+            }
+        }
+
+        long predictions = (long) rounds * values.length;
+        double speedup = compiledNanos > 0 ? (double) originalNanos / compiledNanos : 0.0;
+        LOGGER.info(
+            "{}: original {} ns/instance, compiled {} ns/instance, speedup {}x (checksum {}).",
+            name,
+            String.format("%.1f", (double) originalNanos / predictions),
+            String.format("%.1f", (double) compiledNanos / predictions),
+            String.format("%.2f", speedup),
+            checksum);
+
+        return speedup;
+    }
+}
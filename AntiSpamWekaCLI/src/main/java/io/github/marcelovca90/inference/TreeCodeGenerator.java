@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class TreeCodeGenerator
+{
+    private static final Logger LOGGER = LogManager.getLogger(TreeCodeGenerator.class);
+    private static final String PACKAGE = TreeCodeGenerator.class.getPackage().getName();
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    // larger or deeper trees would exceed the size of a method or the nesting javac can handle
+    private static final int MAX_NODES = 1000;
+    private static final int MAX_DEPTH = 200;
+
+    public int generate(CompiledTree... trees)
+    {
+        // the system compiler is only available when running on a JDK
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+        {
+            LOGGER.warn("No system Java compiler available, trees will be interpreted.");
+            return 0;
+        }
+
+        String className = "GeneratedTrees" + COUNTER.incrementAndGet();
+        StringBuilder code = new StringBuilder();
+        code.append("package ").append(PACKAGE).append(";\n\n");
+        code.append("public final class ").append(className).append("\n{\n");
+
+        boolean[] generated = new boolean[trees.length];
+        int count = 0;
+        for (int i = 0; i < trees.length; i++)
+        {
+            if (isGeneratable(trees[i]))
+            {
+                code.append("    static int tree").append(i).append("(double[] x)\n    {\n");
+                emit(code, trees[i], 0, 2);
+                code.append("    }\n\n");
+                generated[i] = true;
+                count++;
+            }
+        }
+
+        code.append("    public static LeafFinder[] finders()\n    {\n        return new LeafFinder[] {");
+        for (int i = 0; i < trees.length; i++)
+            code.append(i > 0 ? ", " : " ").append(generated[i] ? className + "::tree" + i : "null");
+        code.append(" };\n    }\n}\n");
+
+        if (count == 0)
+            return 0;
+
+        try
+        {
+            LeafFinder[] finders = (LeafFinder[]) compile(compiler, PACKAGE + "." + className, code.toString()).getMethod("finders").invoke(null);
+            for (int i = 0; i < trees.length; i++)
+                if (finders[i] != null)
+                    trees[i].setLeafFinder(finders[i]);
+            return count;
+        }
+        catch (ReflectiveOperationException | IllegalStateException e)
+        {
+            LOGGER.warn("Could not generate tree predictors, trees will be interpreted.", e);
+            return 0;
+        }
+    }
+
+    private boolean isGeneratable(CompiledTree tree)
+    {
+        if (tree.getNumNodes() > MAX_NODES)
+            return false;
+
+        for (int node = 0; node < tree.getNumNodes(); node++)
+            if (tree.isNominal(node))
+                return false;
+
+        return depth(tree, 0) <= MAX_DEPTH;
+    }
+
+    private int depth(CompiledTree tree, int node)
+    {
+        int depth = 0;
+        for (int i = 0; i < tree.getNumChildren(node); i++)
+            depth = Math.max(depth, depth(tree, tree.getFirstChild(node) + i));
+
+        return depth + 1;
+    }
+
+    private void emit(StringBuilder code, CompiledTree tree, int node, int indent)
+    {
+        String padding = String.join("", Collections.nCopies(indent, "    "));
+        int attribute = tree.getAttribute(node);
+        if (attribute < 0)
+        {
+            code.append(padding).append("return ").append(node).append(";\n");
+            return;
+        }
+
+        // same tests as CompiledTree.findLeaf, with the split point as an exact literal
+        String value = "x[" + attribute + "]";
+        String splitPoint = literal(tree.getSplitPoint(node));
+        String condition = tree.getRule() == CompiledTree.Rule.C45
+            ? value + " - " + splitPoint + " < weka.core.Utils.SMALL || " + value + " <= " + splitPoint
+            : value + " < " + splitPoint;
+
+        code.append(padding).append("if (Double.isNaN(").append(value).append(")) return ").append(-(node + 1)).append(";\n");
+        code.append(padding).append("if (").append(condition).append(")\n").append(padding).append("{\n");
+        emit(code, tree, tree.getFirstChild(node), indent + 1);
+        code.append(padding).append("}\n").append(padding).append("else\n").append(padding).append("{\n");
+        emit(code, tree, tree.getFirstChild(node) + 1, indent + 1);
+        code.append(padding).append("}\n");
+    }
+
+    private String literal(double value)
+    {
+        if (Double.isNaN(value))
+            return "Double.NaN";
+        else if (Double.isInfinite(value))
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        else
+            return "(" + Double.toHexString(value) + ")";
+    }
+
+    private Class<?> compile(JavaCompiler compiler, String className, String code) throws ClassNotFoundException
+    {
+        Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager)
+        {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling)
+            {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind)
+                {
+                    @Override
+                    public OutputStream openOutputStream()
+                    {
+                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                        classes.put(name, outputStream);
+                        return outputStream;
+                    }
+                };
+            }
+        };
+
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return code;
+            }
+        };
+
+        Iterable<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none", "-nowarn");
+        if (!compiler.getTask(null, fileManager, null, options, null, Collections.singletonList(source)).call())
+            throw new IllegalStateException("Generated tree predictors did not compile.");
+
+        ClassLoader classLoader = new ClassLoader(LeafFinder.class.getClassLoader())
+        {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException
+            {
+                ByteArrayOutputStream bytes = classes.get(name);
+                if (bytes == null)
+                    throw new ClassNotFoundException(name);
+                byte[] definition = bytes.toByteArray();
+                return defineClass(name, definition, 0, definition.length);
+            }
+        };
+
+        return classLoader.loadClass(className);
+    }
+}
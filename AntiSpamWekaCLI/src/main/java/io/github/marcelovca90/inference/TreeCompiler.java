@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.Bagging;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.REPTree;
+import weka.classifiers.trees.RandomTree;
+import weka.classifiers.trees.j48.C45Split;
+import weka.classifiers.trees.j48.ClassifierSplitModel;
+import weka.classifiers.trees.j48.Distribution;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class TreeCompiler
+{
+    private static final Logger LOGGER = LogManager.getLogger(TreeCompiler.class);
+    private static final String FAST_RANDOM_FOREST = "hr.irb.fastRandomForest.FastRandomForest";
+
+    private final TreeCodeGenerator codeGenerator;
+
+    public TreeCompiler()
+    {
+        this(null);
+    }
+
+    public TreeCompiler(TreeCodeGenerator codeGenerator)
+    {
+        this.codeGenerator = codeGenerator;
+    }
+
+    public static boolean isCompilable(Classifier classifier)
+    {
+        return classifier instanceof J48 || classifier instanceof REPTree || classifier instanceof RandomTree
+            || classifier instanceof Bagging || FAST_RANDOM_FOREST.equals(classifier.getClass().getName());
+    }
+
+    public CompiledModel compile(Classifier classifier, Instances header)
+    {
+        // the trees are read from the protected fields of the trained models, which have no public accessors
+        CompiledModel model;
+        try
+        {
+            if (FAST_RANDOM_FOREST.equals(classifier.getClass().getName()))
+            {
+                Object[] members = (Object[]) field(field(classifier, "m_bagger"), "m_Classifiers");
+                CompiledTree[] trees = new CompiledTree[members.length];
+                for (int i = 0; i < members.length; i++)
+                    trees[i] = flatten(CompiledTree.Rule.PROPORTIONS, header.numClasses(), proportionsNode(members[i], header, "m_ClassProbs", false, false, false));
+                model = new CompiledForest(trees, header.numClasses());
+            }
+            else if (classifier instanceof Bagging)
+            {
+                Object[] members = (Object[]) field(classifier, "m_Classifiers");
+                CompiledTree[] trees = new CompiledTree[members.length];
+                for (int i = 0; i < members.length; i++)
+                    trees[i] = compileTree((Classifier) members[i], header);
+                model = new CompiledForest(trees, header.numClasses());
+            }
+            else
+            {
+                model = compileTree(classifier, header);
+            }
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new UnsupportedOperationException("Could not read the trees of " + classifier.getClass().getName() + ".", e);
+        }
+
+        if (codeGenerator != null)
+        {
+            CompiledTree[] trees = model instanceof CompiledForest ? ((CompiledForest) model).getTrees() : new CompiledTree[] { (CompiledTree) model };
+            int generated = codeGenerator.generate(trees);
+            LOGGER.info("Generated predictors for {} of {} tree(s) of {}.", generated, trees.length, classifier.getClass().getSimpleName());
+        }
+
+        return model;
+    }
+
+    private CompiledTree compileTree(Classifier classifier, Instances header) throws ReflectiveOperationException
+    {
+        int numClasses = header.numClasses();
+
+        if (classifier instanceof J48)
+        {
+            if (((J48) classifier).getUseLaplace())
+                throw new UnsupportedOperationException("J48 with Laplace smoothing is not supported.");
+            return flatten(CompiledTree.Rule.C45, numClasses, c45Node(field(classifier, "m_root"), header));
+        }
+        else if (classifier instanceof REPTree || classifier instanceof RandomTree)
+        {
+            if (optionalField(classifier, "m_zeroR") != null)
+                throw new UnsupportedOperationException(classifier.getClass().getSimpleName() + " fell back to ZeroR and has no tree.");
+
+            boolean randomTree = classifier instanceof RandomTree;
+            boolean allowUnclassified = randomTree && ((RandomTree) classifier).getAllowUnclassifiedInstances();
+            String distributionField = randomTree ? "m_ClassDistribution" : "m_ClassProbs";
+            return flatten(CompiledTree.Rule.PROPORTIONS, numClasses, proportionsNode(field(classifier, "m_Tree"), header, distributionField, randomTree, allowUnclassified, true));
+        }
+
+        throw new UnsupportedOperationException(classifier.getClass().getName() + " cannot be compiled.");
+    }
+
+    private Node c45Node(Object tree, Instances header) throws ReflectiveOperationException
+    {
+        int numClasses = header.numClasses();
+        ClassifierSplitModel localModel = (ClassifierSplitModel) field(tree, "m_localModel");
+        Distribution distribution = localModel.distribution();
+
+        Node node = new Node();
+        if ((Boolean) field(tree, "m_isLeaf"))
+        {
+            node.distribution = new double[numClasses];
+            for (int j = 0; j < numClasses; j++)
+                node.distribution[j] = distribution.prob(j);
+            return node;
+        }
+
+        if (!(localModel instanceof C45Split))
+            throw new UnsupportedOperationException(localModel.getClass().getSimpleName() + " splits are not supported.");
+
+        node.attribute = (Integer) field(localModel, "m_attIndex");
+        node.nominal = header.attribute(node.attribute).isNominal();
+        node.splitPoint = (Double) field(localModel, "m_splitPoint");
+
+        Object[] sons = (Object[]) field(tree, "m_sons");
+        for (int i = 0; i < sons.length; i++)
+        {
+            Node child;
+            if ((Boolean) field(sons[i], "m_isEmpty"))
+            {
+                // an empty son answers with the class probabilities of its bag in the parent's split
+                child = new Node();
+                child.empty = true;
+                child.distribution = new double[numClasses];
+                for (int j = 0; j < numClasses; j++)
+                    child.distribution[j] = distribution.prob(j, i);
+            }
+            else
+            {
+                child = c45Node(sons[i], header);
+            }
+            child.weight = distribution.perBag(i) / distribution.total();
+            node.children.add(child);
+        }
+
+        return node;
+    }
+
+    private Node proportionsNode(Object tree, Instances header, String distributionField, boolean normalize, boolean allowUnclassified, boolean allowNominal) throws ReflectiveOperationException
+    {
+        Node node = new Node();
+
+        double[] classDistribution = (double[]) field(tree, distributionField);
+        if (classDistribution != null)
+        {
+            node.distribution = classDistribution.clone();
+            if (normalize)
+                Utils.normalize(node.distribution);
+        }
+        else if (allowUnclassified)
+        {
+            node.distribution = new double[header.numClasses()];
+        }
+
+        node.attribute = (Integer) field(tree, "m_Attribute");
+        if (node.attribute < 0)
+            return node;
+
+        node.nominal = header.attribute(node.attribute).isNominal();
+        if (node.nominal && !allowNominal)
+            throw new UnsupportedOperationException("Nominal splits are not supported for " + tree.getClass().getName() + ".");
+        node.splitPoint = (Double) field(tree, "m_SplitPoint");
+
+        double[] proportions = (double[]) field(tree, "m_Prop");
+        Object[] successors = (Object[]) field(tree, "m_Successors");
+        for (int i = 0; i < successors.length; i++)
+        {
+            Node child = proportionsNode(successors[i], header, distributionField, normalize, allowUnclassified, allowNominal);
+            child.weight = proportions[i];
+            node.children.add(child);
+        }
+
+        return node;
+    }
+
+    private CompiledTree flatten(CompiledTree.Rule rule, int numClasses, Node root)
+    {
+        List<Node> nodes = new ArrayList<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty())
+        {
+            Node node = queue.poll();
+            nodes.add(node);
+            queue.addAll(node.children);
+        }
+
+        int size = nodes.size();
+        int[] attribute = new int[size];
+        boolean[] nominal = new boolean[size];
+        double[] splitPoint = new double[size];
+        int[] firstChild = new int[size];
+        int[] numChildren = new int[size];
+        double[] weight = new double[size];
+        boolean[] empty = new boolean[size];
+        double[] distribution = new double[size * numClasses];
+        boolean[] hasDistribution = new boolean[size];
+
+        // in breadth-first order, the children of each node follow those of the nodes before it
+        int next = 1;
+        for (int i = 0; i < size; i++)
+        {
+            Node node = nodes.get(i);
+            attribute[i] = node.attribute;
+            nominal[i] = node.nominal;
+            splitPoint[i] = node.splitPoint;
+            firstChild[i] = next;
+            numChildren[i] = node.children.size();
+            weight[i] = node.weight;
+            empty[i] = node.empty;
+            hasDistribution[i] = node.distribution != null;
+            if (node.distribution != null)
+                System.arraycopy(node.distribution, 0, distribution, i * numClasses, numClasses);
+            next += node.children.size();
+        }
+
+        return new CompiledTree(rule, numClasses, attribute, nominal, splitPoint, firstChild, numChildren, weight, empty, distribution, hasDistribution);
+    }
+
+    static Object optionalField(Object target, String name) throws ReflectiveOperationException
+    {
+        try
+        {
+            return field(target, name);
+        }
+        catch (NoSuchFieldException e)
+        {
+            return null;
+        }
+    }
+
+    static Object field(Object target, String name) throws ReflectiveOperationException
+    {
+        for (Class<?> clazz = target.getClass(); clazz != null; clazz = clazz.getSuperclass())
+        {
+            try
+            {
+                Field field = clazz.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(target);
+            }
+            catch (NoSuchFieldException e)
+            {
+                // keep looking in the superclass
+            }
+        }
+
+        throw new NoSuchFieldException(target.getClass().getName() + "." + name);
+    }
+
+    private static class Node
+    {
+        private int attribute = -1;
+        private boolean nominal;
+        private double splitPoint;
+        private double weight;
+        private boolean empty;
+        private double[] distribution;
+        private final List<Node> children = new ArrayList<>();
+    }
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.data.InstanceStream;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class BatchScorer
+{
+    private static final Logger LOGGER = LogManager.getLogger(BatchScorer.class);
+
+    public enum Format
+    {
+        // number of classes, then one float per class and message
+        BINARY,
+        // one line per message with its index, actual class, predicted class and distribution
+        CSV
+    }
+
+    private final Classifier classifier;
+    private final int threads;
+
+    public BatchScorer(Classifier classifier, int threads)
+    {
+        this.classifier = classifier;
+        this.threads = Math.max(1, threads);
+    }
+
+    public long score(InstanceStream stream, OutputStream outputStream, Format format) throws Exception
+    {
+        // models are not necessarily thread-safe, so a copy is lent to each chunk being scored
+        BlockingQueue<Classifier> copies = new LinkedBlockingQueue<>();
+        if (threads > 1)
+            copies.addAll(Arrays.asList(AbstractClassifier.makeCopies(classifier, threads)));
+        else
+            copies.add(classifier);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            Thread thread = new Thread(runnable, "batch-scorer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Writer writer = new Writer(outputStream, format, stream.getStructure());
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long start = System.nanoTime();
+        long count = 0;
+
+        try
+        {
+            while (stream.hasNext())
+            {
+                Instances instances = new Instances(stream.getStructure(), stream.getChunkSize());
+                while (instances.numInstances() < stream.getChunkSize() && stream.hasNext())
+                    instances.add(stream.next());
+
+                long offset = count;
+                count += instances.numInstances();
+                inFlight.add(executor.submit(() -> score(copies, instances, offset)));
+
+                // bound memory to a few chunks per thread, writing predictions in input order
+                while (inFlight.size() >= 2 * threads)
+                    writer.write(inFlight.poll().get());
+            }
+
+            while (!inFlight.isEmpty())
+                writer.write(inFlight.poll().get());
+
+            writer.flush();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        LOGGER.info("Scored {} message(s) in {} s ({} msg/s).", count, String.format("%.3f", seconds), String.format("%.1f", seconds > 0 ? count / seconds : 0.0));
+
+        return count;
+    }
+
+    private Chunk score(BlockingQueue<Classifier> copies, Instances instances, long offset) throws Exception
+    {
+        Classifier copy = copies.take();
+        try
+        {
+            return new Chunk(instances, offset, ScoringService.distributionsForInstances(copy, instances));
+        }
+        finally
+        {
+            copies.add(copy);
+        }
+    }
+
+    private static class Chunk
+    {
+        private final Instances instances;
+        private final long offset;
+        private final double[][] distributions;
+
+        private Chunk(Instances instances, long offset, double[][] distributions)
+        {
+            this.instances = instances;
+            this.offset = offset;
+            this.distributions = distributions;
+        }
+    }
+
+    private static class Writer
+    {
+        private final Format format;
+        private final Instances structure;
+        private final DataOutputStream dataOutputStream;
+        private final PrintWriter printWriter;
+
+        private Writer(OutputStream outputStream, Format format, Instances structure) throws IOException
+        {
+            this.format = format;
+            this.structure = structure;
+
+            if (format == Format.BINARY)
+            {
+                dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+                dataOutputStream.writeInt(structure.numClasses());
+                printWriter = null;
+            }
+            else
+            {
+                dataOutputStream = null;
+                printWriter = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(outputStream), StandardCharsets.UTF_8));
+                StringBuilder header = new StringBuilder("index,actual,predicted");
+                for (int i = 0; i < structure.numClasses(); i++)
+                    header.append(',').append(structure.classAttribute().value(i));
+                printWriter.println(header);
+            }
+        }
+
+        private void write(Chunk chunk) throws IOException
+        {
+            for (int i = 0; i < chunk.distributions.length; i++)
+            {
+                double[] distribution = chunk.distributions[i];
+                if (format == Format.BINARY)
+                {
+                    for (double probability : distribution)
+                        dataOutputStream.writeFloat((float) probability);
+                }
+                else
+                {
+                    double actual = chunk.instances.instance(i).classValue();
+                    StringBuilder line = new StringBuilder();
+                    line.append(chunk.offset + i).append(',');
+                    line.append(Utils.isMissingValue(actual) ? "" : structure.classAttribute().value((int) actual)).append(',');
+                    line.append(structure.classAttribute().value(Utils.maxIndex(distribution)));
+                    for (double probability : distribution)
+                        line.append(',').append(String.format(Locale.ROOT, "%.6f", probability));
+                    printWriter.println(line);
+                }
+            }
+        }
+
+        private void flush() throws IOException
+        {
+            if (dataOutputStream != null)
+                dataOutputStream.flush();
+            else
+                printWriter.flush();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ScoringServer implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(ScoringServer.class);
+
+    public static final int DEFAULT_HTTP_PORT = 8080;
+    public static final int DEFAULT_SOCKET_PORT = 4591;
+    public static final int MAX_VECTORS_PER_REQUEST = 65536;
+
+    private final ScoringService service;
+    private final ExecutorService executor;
+    private final HttpServer httpServer;
+    private final ServerSocket serverSocket;
+
+    public ScoringServer(ScoringService service, int httpPort, int socketPort) throws IOException
+    {
+        this(service, InetAddress.getLoopbackAddress(), httpPort, socketPort);
+    }
+
+    public ScoringServer(ScoringService service, InetAddress httpAddress, int httpPort, int socketPort) throws IOException
+    {
+        this.service = service;
+        this.executor = Executors.newCachedThreadPool(runnable ->
+        {
+            Thread thread = new Thread(runnable, "scoring-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // POST /score takes and returns the raw binary layout; GET /stats reports latency and throughput;
+        // it is only exposed beyond this host when an address is given explicitly
+        this.httpServer = HttpServer.create(new InetSocketAddress(httpAddress, httpPort), 0);
+        this.httpServer.createContext("/score", this::handleScore);
+        this.httpServer.createContext("/stats", this::handleStats);
+        this.httpServer.setExecutor(executor);
+
+        // the socket endpoint keeps connections open and is only reachable locally
+        this.serverSocket = new ServerSocket(socketPort, 0, InetAddress.getLoopbackAddress());
+    }
+
+    public int getHttpPort()
+    {
+        return httpServer.getAddress().getPort();
+    }
+
+    public int getSocketPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start()
+    {
+        httpServer.start();
+        Thread acceptor = new Thread(this::accept, "scoring-acceptor");
+        acceptor.start();
+
+        LOGGER.info("Scoring server listening on HTTP address {} port {} and socket port {}.", httpServer.getAddress().getAddress().getHostAddress(), getHttpPort(), getSocketPort());
+    }
+
+    // vectors are framed as in the raw binary format: count, attributes, then count * attributes doubles
+    static double[][] readVectors(DataInputStream inputStream, int expectedAttributes) throws IOException
+    {
+        int numberOfInstances = inputStream.readInt();
+        int numberOfAttributes = inputStream.readInt();
+
+        // the header is checked before allocating, so that a malformed or hostile frame cannot exhaust the heap
+        if (numberOfInstances < 0 || numberOfInstances > MAX_VECTORS_PER_REQUEST)
+            throw new ProtocolException("Expected between 0 and " + MAX_VECTORS_PER_REQUEST + " vectors, got " + numberOfInstances + ".");
+        if (numberOfAttributes != expectedAttributes)
+            throw new ProtocolException("Expected " + expectedAttributes + " attributes, got " + numberOfAttributes + ".");
+
+        double[][] vectors = new double[numberOfInstances][numberOfAttributes];
+        for (int i = 0; i < numberOfInstances; i++)
+            for (int j = 0; j < numberOfAttributes; j++)
+                vectors[i][j] = inputStream.readDouble();
+
+        return vectors;
+    }
+
+    // distributions are framed the same way, with one HAM and one SPAM probability per vector
+    static void writeDistributions(DataOutputStream outputStream, double[][] distributions) throws IOException
+    {
+        outputStream.writeInt(distributions.length);
+        outputStream.writeInt(distributions.length > 0 ? distributions[0].length : 0);
+        for (double[] distribution : distributions)
+            for (double probability : distribution)
+                outputStream.writeDouble(probability);
+    }
+
+    private void accept()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> serve(socket));
+            }
+            catch (SocketException e)
+            {
+                if (!serverSocket.isClosed())
+                    LOGGER.error("Could not accept connection.", e);
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Could not accept connection.", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try (Socket s = socket)
+        {
+            s.setTcpNoDelay(true);
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            while (true)
+            {
+                double[][] vectors;
+                try
+                {
+                    vectors = readVectors(inputStream, service.getNumAttributes());
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+
+                writeDistributions(outputStream, service.score(vectors));
+                outputStream.flush();
+            }
+        }
+        catch (ExecutionException e)
+        {
+            LOGGER.error("Could not score request, closing connection.", e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ProtocolException e)
+        {
+            LOGGER.error("Rejected malformed request, closing connection: {}", e.getMessage());
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Connection with client was lost.", e);
+        }
+    }
+
+    private void handleScore(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if (!"POST".equals(exchange.getRequestMethod()))
+            {
+                respond(exchange, 405, "Use POST.".getBytes(StandardCharsets.UTF_8), "text/plain");
+                return;
+            }
+
+            double[][] vectors = readVectors(new DataInputStream(new BufferedInputStream(exchange.getRequestBody())), service.getNumAttributes());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream outputStream = new DataOutputStream(body);
+            writeDistributions(outputStream, service.score(vectors));
+            outputStream.flush();
+
+            respond(exchange, 200, body.toByteArray(), "application/octet-stream");
+        }
+        catch (ExecutionException e)
+        {
+            // malformed requests are rejected while reading them, so a failed future is a fault of the model or the service
+            LOGGER.error("Could not score request.", e.getCause());
+            respond(exchange, 500, String.valueOf(e.getCause().getMessage()).getBytes(StandardCharsets.UTF_8), "text/plain");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, new byte[0], "text/plain");
+        }
+        catch (EOFException e)
+        {
+            respond(exchange, 400, "Truncated request.".getBytes(StandardCharsets.UTF_8), "text/plain");
+        }
+        catch (ProtocolException e)
+        {
+            respond(exchange, 400, e.getMessage().getBytes(StandardCharsets.UTF_8), "text/plain");
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException
+    {
+        respond(exchange, 200, (service.describe() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), "text/plain");
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        try (OutputStream outputStream = exchange.getResponseBody())
+        {
+            outputStream.write(body);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        httpServer.stop(0);
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Could not close scoring socket.", e);
+        }
+        executor.shutdownNow();
+        service.close();
+    }
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.marcelovca90.evaluation.LatencyHistogram;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.BatchPredictor;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+import weka.core.Utils;
+
+public class ScoringService implements AutoCloseable
+{
+    private static final Logger LOGGER = LogManager.getLogger(ScoringService.class);
+
+    private final Instances structure;
+    private final int maxBatchSize;
+    private final long maxBatchDelay;
+    private final BlockingQueue<Request> queue;
+    private final ExecutorService executor;
+    private final LatencyHistogram latencies;
+    private final AtomicLong scored;
+    private final long startTime;
+    private volatile boolean running;
+
+    public ScoringService(Classifier classifier, Instances structure, int workers, int maxBatchSize, long maxBatchDelayMicros) throws Exception
+    {
+        this.structure = structure;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+        this.queue = new LinkedBlockingQueue<>();
+        this.latencies = new LatencyHistogram();
+        this.scored = new AtomicLong();
+        this.startTime = System.nanoTime();
+        this.running = true;
+
+        // models are not necessarily thread-safe, so every worker scores with its own copy
+        Classifier[] copies = workers > 1 ? AbstractClassifier.makeCopies(classifier, workers) : new Classifier[] { classifier };
+        this.executor = Executors.newFixedThreadPool(copies.length, runnable ->
+        {
+            Thread thread = new Thread(runnable, "scoring-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Classifier copy : copies)
+            executor.submit(() -> work(copy));
+    }
+
+    public static Classifier loadModel(String filename) throws Exception
+    {
+        return (Classifier) SerializationHelper.read(filename);
+    }
+
+    public int getNumAttributes()
+    {
+        return structure.numAttributes() - 1;
+    }
+
+    public CompletableFuture<double[][]> submit(double[][] vectors)
+    {
+        Request request = new Request(vectors);
+
+        // malformed vectors are rejected up front, so that they cannot fail the batch of other callers
+        int numAttributes = getNumAttributes();
+        for (double[] vector : vectors)
+        {
+            if (vector.length != numAttributes)
+            {
+                request.future.completeExceptionally(new IllegalArgumentException("Expected " + numAttributes + " attributes, got " + vector.length + "."));
+                return request.future;
+            }
+        }
+
+        // checked under the same lock close() takes, so that no request is queued after the queue has been drained
+        synchronized (queue)
+        {
+            if (!running)
+                request.future.completeExceptionally(new IllegalStateException("Scoring service is closed."));
+            else
+                queue.add(request);
+        }
+
+        return request.future;
+    }
+
+    public double[][] score(double[][] vectors) throws InterruptedException, ExecutionException
+    {
+        return submit(vectors).get();
+    }
+
+    public LatencyHistogram getLatencies()
+    {
+        return latencies;
+    }
+
+    public double getThroughput()
+    {
+        double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds > 0 ? scored.get() / seconds : 0.0;
+    }
+
+    public String describe()
+    {
+        return String.format("%s, %.1f msg/s", latencies.describe(50, 99), getThroughput());
+    }
+
+    private void work(Classifier classifier)
+    {
+        List<Request> batch = new ArrayList<>();
+
+        while (running)
+        {
+            try
+            {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                // wait briefly for concurrent callers, so that their vectors are scored in a single batch
+                batch.add(first);
+                int size = first.vectors.length;
+                long deadline = System.nanoTime() + maxBatchDelay;
+                while (size < maxBatchSize)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    size += next.vectors.length;
+                }
+
+                score(classifier, batch, size);
+            }
+            catch (InterruptedException e)
+            {
+                // requests already taken from the queue would otherwise never complete
+                batch.forEach(request -> request.future.completeExceptionally(new IllegalStateException("Scoring service is closed.")));
+                Thread.currentThread().interrupt();
+                break;
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    private void score(Classifier classifier, List<Request> batch, int size)
+    {
+        try
+        {
+            Instances instances = new Instances(structure, size);
+            for (Request request : batch)
+                for (double[] vector : request.vectors)
+                    instances.add(toInstance(vector));
+
+            double[][] distributions = distributionsForInstances(classifier, instances);
+
+            int offset = 0;
+            long now = System.nanoTime();
+            for (Request request : batch)
+            {
+                double[][] result = new double[request.vectors.length][];
+                System.arraycopy(distributions, offset, result, 0, result.length);
+                offset += result.length;
+                latencies.record(now - request.submitTime);
+                request.future.complete(result);
+            }
+            scored.addAndGet(size);
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("Could not score batch of " + size + " vector(s).", e);
+            batch.forEach(request -> request.future.completeExceptionally(e));
+        }
+    }
+
+    static double[][] distributionsForInstances(Classifier classifier, Instances instances) throws Exception
+    {
+        if (classifier instanceof BatchPredictor && ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction())
+        {
+            return ((BatchPredictor) classifier).distributionsForInstances(instances);
+        }
+
+        double[][] distributions = new double[instances.numInstances()][];
+        for (int i = 0; i < distributions.length; i++)
+            distributions[i] = classifier.distributionForInstance(instances.instance(i));
+
+        return distributions;
+    }
+
+    private Instance toInstance(double[] vector)
+    {
+        double[] values = new double[vector.length + 1];
+        System.arraycopy(vector, 0, values, 0, vector.length);
+        values[vector.length] = Utils.missingValue();
+
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(structure);
+        return instance;
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (queue)
+        {
+            running = false;
+        }
+        executor.shutdownNow();
+
+        Request request;
+        while ((request = queue.poll()) != null)
+            request.future.completeExceptionally(new IllegalStateException("Scoring service is closed."));
+
+        LOGGER.info("Scoring service closed ({}).", describe());
+    }
+
+    private static class Request
+    {
+        private final double[][] vectors;
+        private final long submitTime;
+        private final CompletableFuture<double[][]> future;
+
+        private Request(double[][] vectors)
+        {
+            this.vectors = vectors;
+            this.submitTime = System.nanoTime();
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
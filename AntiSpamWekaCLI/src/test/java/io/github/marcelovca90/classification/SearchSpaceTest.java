@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.classification;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class SearchSpaceTest
+{
+    private SearchSpace searchSpace;
+
+    @Test
+    public void isSearchable_plainOptions_shouldReturnFalse()
+    {
+        // given
+        String options = "-S 1 -C 1.0";
+
+        // when
+        boolean searchable = SearchSpace.isSearchable(options);
+
+        // then
+        assertThat(searchable, equalTo(false));
+    }
+
+    @Test
+    public void isSearchable_rangeOptions_shouldReturnTrue()
+    {
+        // given
+        String options = "-S 1 -C [0.1..100 log]";
+
+        // when
+        boolean searchable = SearchSpace.isSearchable(options);
+
+        // then
+        assertThat(searchable, equalTo(true));
+    }
+
+    @Test
+    public void instantiate_logarithmicRange_shouldInterpolateExponents()
+    {
+        // given
+        searchSpace = new SearchSpace("-S 1 -C [0.1..1000.0 log]");
+
+        // when
+        String lower = searchSpace.instantiate(new double[] { 0.0 });
+        String upper = searchSpace.instantiate(new double[] { 1.0 });
+        String center = searchSpace.getDefault();
+
+        // then
+        assertThat(searchSpace.dimensions(), equalTo(1));
+        assertThat(lower, equalTo("-S 1 -C 0.1"));
+        assertThat(upper, equalTo("-S 1 -C 1000"));
+        assertThat(center, equalTo("-S 1 -C 10"));
+    }
+
+    @Test
+    public void instantiate_integerRangeAndList_shouldReplaceEveryParameter()
+    {
+        // given
+        searchSpace = new SearchSpace("-M [1..11] -K [0|1|2] -S 1");
+
+        // when
+        String options = searchSpace.instantiate(new double[] { 0.5, 0.99 });
+
+        // then
+        assertThat(searchSpace.dimensions(), equalTo(2));
+        assertThat(options, equalTo("-M 6 -K 2 -S 1"));
+    }
+}
@@ -29,6 +29,7 @@ import static org.junit.Assert.assertThat;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -66,13 +67,47 @@ public class ConfigurationLoaderTest
         assertThat(configuration.getMetadataPath(), notNullValue());
         assertThat(configuration.getClassNamesOptionsAndLogNames(), notNullValue());
         assertThat(configuration.getClassNamesOptionsAndLogNames().size(), equalTo(2));
+        assertThat(configuration.getCellLimits().get(configuration.getClassNamesOptionsAndLogNames().get(0)), equalTo(Pair.of(60L * 60L * 1000L, 512L * 1024L * 1024L)));
+        assertThat(configuration.getCellLimits().get(configuration.getClassNamesOptionsAndLogNames().get(1)), equalTo(Pair.of(0L, 0L)));
         assertThat(configuration.getRuns(), equalTo(10));
+        assertThat(configuration.getParallelRuns(), equalTo(1));
+        assertThat(configuration.isAdaptiveRuns(), equalTo(false));
+        assertThat(configuration.getMinRuns(), equalTo(3));
+        assertThat(configuration.getMaxRuns(), equalTo(30));
+        assertThat(configuration.getTargetMetric(), equalTo("weightedFMeasure"));
+        assertThat(configuration.getTargetHalfWidth(), equalTo(0.5));
+        assertThat(configuration.isRacing(), equalTo(false));
+        assertThat(configuration.getRacingInitialFraction(), equalTo(0.1));
+        assertThat(configuration.getRacingInitialRuns(), equalTo(3));
+        assertThat(configuration.getRacingEta(), equalTo(2.0));
+        assertThat(configuration.getRacingFinalists(), equalTo(3));
+        assertThat(configuration.getRacingAlpha(), equalTo(0.05));
+        assertThat(configuration.getCostHistory(), equalTo("costs.properties"));
+        assertThat(configuration.getJournal(), equalTo("journal.tsv"));
+        assertThat(configuration.getSearchTrials(), equalTo(0));
+        assertThat(configuration.getSearchStrategy(), equalTo("random"));
+        assertThat(configuration.getSearchParallelism(), equalTo(1));
+        assertThat(configuration.getSearchValidationFolds(), equalTo(4));
+        assertThat(configuration.getSearchLog(), equalTo("trials.tsv"));
         assertThat(configuration.isTsneAnalysis(), equalTo(false));
         assertThat(configuration.isTsneAnalysis(), equalTo(false));
         assertThat(configuration.shouldLoadArff(), equalTo(false));
+        assertThat(configuration.shouldUseSnapshot(), equalTo(false));
+        assertThat(configuration.shouldMemoryMapRawFiles(), equalTo(true));
+        assertThat(configuration.getSparseDensityThreshold(), equalTo(0.0));
+        assertThat(configuration.getPrefetchDatasets(), equalTo(1));
+        assertThat(configuration.getPrefetchMemoryBudget(), equalTo(1024L * 1024L * 1024L));
+        assertThat(configuration.shouldStreamUpdateable(), equalTo(false));
+        assertThat(configuration.getStreamChunkSize(), equalTo(10000));
+        assertThat(configuration.getEvaluationBins(), equalTo(1024));
+        assertThat(configuration.getTestParallelism(), equalTo(1));
         assertThat(configuration.shouldShrinkFeatures(), equalTo(true));
         assertThat(configuration.shouldBalanceClasses(), equalTo(true));
+        assertThat(configuration.shouldPersistSplitPlans(), equalTo(false));
+        assertThat(configuration.shouldForkCells(), equalTo(false));
         assertThat(configuration.shouldIncludeEmpty(), equalTo(true));
+        assertThat(configuration.shouldCompileModels(), equalTo(false));
+        assertThat(configuration.shouldMeasureFootprint(), equalTo(true));
         assertThat(configuration.shouldSaveModel(), equalTo(false));
         assertThat(configuration.shouldSaveArff(), equalTo(false));
     }
@@ -22,6 +22,7 @@
 package io.github.marcelovca90.data;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -31,16 +32,20 @@ import static org.mockito.Mockito.mock;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -49,6 +54,7 @@ import weka.classifiers.Classifier;
 import weka.classifiers.functions.MultilayerPerceptron;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DatasetHelperTest
@@ -59,6 +65,9 @@ public class DatasetHelperTest
     private final DatasetMetadata metadata32 = buildMetadata("dataset/method/32", 0, 3);
     private final DatasetMetadata metadata64 = buildMetadata("dataset/method/64", 0, 3);
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @InjectMocks
     private DatasetHelper datasetHelper;
 
@@ -188,6 +197,187 @@ public class DatasetHelperTest
         FileUtils.moveFile(new File(folder + File.separator + "spam.bkp"), new File(folder + File.separator + "spam"));
     }
 
+    @Test
+    public void loadDataset_memoryMappedAndStreamedFiles_shouldReturnEqualInstances() throws URISyntaxException
+    {
+        // given
+        datasetHelper.setMemoryMapRawFiles(true);
+        Instances mappedDataset = datasetHelper.loadDataset(metadata64, false);
+        datasetHelper.setMemoryMapRawFiles(false);
+        Instances streamedDataset = datasetHelper.loadDataset(metadata64, false);
+
+        // then
+        assertThat(mappedDataset, notNullValue());
+        assertThat(streamedDataset, notNullValue());
+        assertThat(mappedDataset.numAttributes(), equalTo(streamedDataset.numAttributes()));
+        assertThat(mappedDataset.classIndex(), equalTo(streamedDataset.classIndex()));
+        assertThat(mappedDataset.size(), equalTo(streamedDataset.size()));
+        for (int i = 0; i < mappedDataset.size(); i++)
+            assertThat(mappedDataset.get(i).toDoubleArray(), equalTo(streamedDataset.get(i).toDoubleArray()));
+    }
+
+    @Test
+    public void loadDataset_withSparseDensityThreshold_shouldReturnSparseInstancesWithSameValues() throws URISyntaxException
+    {
+        // given
+        datasetHelper.setSparseDensityThreshold(0.0);
+        Instances denseDataset = datasetHelper.loadDataset(metadata8, false);
+        datasetHelper.setSparseDensityThreshold(1.0);
+        Instances sparseDataset = datasetHelper.loadDataset(metadata8, false);
+        datasetHelper.addEmptyInstances(sparseDataset, metadata8);
+
+        // then
+        assertThat(sparseDataset, notNullValue());
+        assertThat(sparseDataset.size(), equalTo(denseDataset.size() + metadata8.getNumEmptyHams() + metadata8.getNumEmptySpams()));
+        assertThat(sparseDataset.stream().anyMatch(i -> i instanceof SparseInstance), equalTo(true));
+        for (int i = 0; i < denseDataset.size(); i++)
+            assertThat(sparseDataset.get(i).toDoubleArray(), equalTo(denseDataset.get(i).toDoubleArray()));
+        for (int i = denseDataset.size(); i < sparseDataset.size(); i++)
+            assertThat(sparseDataset.get(i), instanceOf(SparseInstance.class));
+    }
+
+    @Test
+    public void loadDataset_withSnapshot_shouldCreateSnapshotAndReturnEqualInstances() throws URISyntaxException
+    {
+        // given
+        Instances rawDataset = datasetHelper.loadDataset(metadata64, false);
+        datasetHelper.setUseSnapshot(true);
+
+        // when
+        Instances builtDataset = datasetHelper.loadDataset(metadata64, false);
+        Instances snapshotDataset = datasetHelper.loadDataset(metadata64, false);
+
+        // then
+        assertThat(Files.exists(Paths.get(metadata64.getSnapshotFilename())), equalTo(true));
+        assertThat(builtDataset, notNullValue());
+        assertThat(snapshotDataset, notNullValue());
+        assertThat(snapshotDataset.numAttributes(), equalTo(rawDataset.numAttributes()));
+        assertThat(snapshotDataset.classIndex(), equalTo(rawDataset.classIndex()));
+        assertThat(snapshotDataset.size(), equalTo(rawDataset.size()));
+        for (int i = 0; i < rawDataset.size(); i++)
+            assertThat(snapshotDataset.get(i).toDoubleArray(), equalTo(rawDataset.get(i).toDoubleArray()));
+
+        // tear down
+        FileUtils.deleteQuietly(Paths.get(metadata64.getSnapshotFilename()).toFile());
+    }
+
+    @Test
+    public void loadDataset_withCorruptSnapshot_shouldRebuildSnapshot() throws URISyntaxException, IOException
+    {
+        // given
+        File snapshotFile = Paths.get(metadata64.getSnapshotFilename()).toFile();
+        FileUtils.writeStringToFile(snapshotFile, "lorem ipsum", "UTF-8");
+        datasetHelper.setUseSnapshot(true);
+
+        // when
+        Instances dataset = datasetHelper.loadDataset(metadata64, false);
+
+        // then
+        assertThat(dataset, notNullValue());
+        assertThat(dataset.isEmpty(), equalTo(false));
+        assertThat(snapshotFile.length(), not(equalTo((long) "lorem ipsum".length())));
+
+        // tear down
+        FileUtils.deleteQuietly(snapshotFile);
+    }
+
+    @Test
+    public void loadDataset_compressedRawFiles_shouldReturnEqualInstancesForEachCodec() throws Exception
+    {
+        // given
+        Instances rawDataset = datasetHelper.loadDataset(metadata8, false);
+        String[][] codecsAndExtensions = {
+            { CompressorStreamFactory.GZIP, "gz" },
+            { CompressorStreamFactory.XZ, "xz" },
+            { CompressorStreamFactory.ZSTANDARD, "zst" } };
+
+        for (String[] codecAndExtension : codecsAndExtensions)
+        {
+            File folder = temporaryFolder.newFolder(codecAndExtension[0], "method", "8");
+            for (String name : new String[] { "ham", "spam" })
+            {
+                File source = new File(metadata8.getFolder() + File.separator + name);
+                File target = new File(folder, name + "." + codecAndExtension[1]);
+                try (OutputStream outputStream = new CompressorStreamFactory().createCompressorOutputStream(codecAndExtension[0], FileUtils.openOutputStream(target)))
+                {
+                    FileUtils.copyFile(source, outputStream);
+                }
+            }
+
+            // when
+            Instances compressedDataset = datasetHelper.loadDataset(new DatasetMetadata(folder.getAbsolutePath(), 0, 19), false);
+
+            // then
+            assertThat(compressedDataset, notNullValue());
+            assertThat(compressedDataset.size(), equalTo(rawDataset.size()));
+            for (int i = 0; i < rawDataset.size(); i++)
+                assertThat(compressedDataset.get(i).toDoubleArray(), equalTo(rawDataset.get(i).toDoubleArray()));
+        }
+    }
+
+    @Test
+    public void openInstanceStream_rawFiles_shouldStreamEveryInstanceWithClassesInterleaved() throws IOException
+    {
+        // given
+        Instances dataset = datasetHelper.loadDataset(metadata8, false);
+        int hamCount = countMessagesByType(dataset, ClassType.HAM);
+        int spamCount = countMessagesByType(dataset, ClassType.SPAM);
+        int streamedHamCount = 0;
+        int streamedSpamCount = 0;
+        int firstSpamPosition = -1;
+
+        // when
+        try (InstanceStream stream = datasetHelper.openInstanceStream(metadata8, false, 100, 0))
+        {
+            for (int i = 0; stream.hasNext(); i++)
+            {
+                Instance instance = stream.next();
+                if (instance.classValue() == ClassType.HAM.ordinal())
+                {
+                    streamedHamCount++;
+                }
+                else
+                {
+                    streamedSpamCount++;
+                    if (firstSpamPosition < 0)
+                        firstSpamPosition = i;
+                }
+            }
+
+            // then
+            assertThat(stream.getStructure().numAttributes(), equalTo(dataset.numAttributes()));
+        }
+        assertThat(streamedHamCount, equalTo(hamCount));
+        assertThat(streamedSpamCount, equalTo(spamCount));
+        assertThat(firstSpamPosition, lessThan(100));
+    }
+
+    @Test
+    public void openInstanceStream_singleRawFile_shouldStreamEveryInstanceOfItsClass() throws IOException
+    {
+        // given
+        Instances dataset = datasetHelper.loadDataset(metadata8, false);
+        int spamCount = countMessagesByType(dataset, ClassType.SPAM);
+        int streamedSpamCount = 0;
+        int streamedOtherCount = 0;
+
+        // when
+        try (InstanceStream stream = datasetHelper.openInstanceStream(metadata8.getFolder() + File.separator + "spam", 100))
+        {
+            while (stream.hasNext())
+            {
+                if (stream.next().classValue() == ClassType.SPAM.ordinal())
+                    streamedSpamCount++;
+                else
+                    streamedOtherCount++;
+            }
+        }
+
+        // then
+        assertThat(streamedSpamCount, equalTo(spamCount));
+        assertThat(streamedOtherCount, equalTo(0));
+    }
+
     @Test
     public void addEmptyInstance_shouldReturnDatasetWithNewEmptyInstances() throws Exception
     {
@@ -247,6 +437,25 @@ public class DatasetHelperTest
         assertThat(spamCountAfter, equalTo(Math.max(hamCountBefore, spamCountBefore)));
     }
 
+    @Test
+    public void subsample_shouldKeepClassProportionsAndOrder() throws URISyntaxException
+    {
+        // given
+        Instances dataset = datasetHelper.loadDataset(metadata64, false);
+        long hamCount = dataset.stream().filter(i -> i.classValue() == ClassType.HAM.ordinal()).count();
+        long spamCount = dataset.size() - hamCount;
+
+        // when
+        Instances sample = datasetHelper.subsample(dataset, 0.25, 1);
+
+        // then
+        long sampleHamCount = sample.stream().filter(i -> i.classValue() == ClassType.HAM.ordinal()).count();
+        assertThat(sampleHamCount, equalTo((long) Math.ceil(0.25 * hamCount)));
+        assertThat(sample.size() - sampleHamCount, equalTo((long) Math.ceil(0.25 * spamCount)));
+        for (int i = 1; i < sample.size(); i++)
+            assertThat(sample.get(i).classValue() >= sample.get(i - 1).classValue(), equalTo(true));
+    }
+
     @Test
     public void selectAttributes_withValidDataset_shouldReturnFilteredDataset() throws URISyntaxException
     {
@@ -307,6 +516,104 @@ public class DatasetHelperTest
         assertThat(splitDataset.getLeft().size() + splitDataset.getRight().size(), equalTo(dataset.size()));
     }
 
+    @Test
+    public void balanceShuffleSplit_datasetView_shouldMatchInstancesBasedOperations() throws URISyntaxException
+    {
+        // given
+        Instances dataset = datasetHelper.loadDataset(metadata64, false);
+        Instances datasetCopy = new Instances(dataset);
+        DatasetView datasetView = new DatasetView(dataset);
+
+        // when
+        datasetHelper.balance(datasetCopy, 7);
+        datasetHelper.shuffle(datasetCopy, 7);
+        Pair<Instances, Instances> copySplit = datasetHelper.split(datasetCopy, 0.6);
+        datasetHelper.balance(datasetView, 7);
+        datasetHelper.shuffle(datasetView, 7);
+        Pair<Instances, Instances> viewSplit = datasetHelper.split(datasetView, 0.6);
+
+        // then
+        assertThat(dataset.size(), equalTo(datasetView.getDataset().size()));
+        assertThat(viewSplit.getLeft().size(), equalTo(copySplit.getLeft().size()));
+        assertThat(viewSplit.getRight().size(), equalTo(copySplit.getRight().size()));
+        for (int i = 0; i < copySplit.getLeft().size(); i++)
+            assertThat(viewSplit.getLeft().get(i).toDoubleArray(), equalTo(copySplit.getLeft().get(i).toDoubleArray()));
+        for (int i = 0; i < copySplit.getRight().size(); i++)
+            assertThat(viewSplit.getRight().get(i).toDoubleArray(), equalTo(copySplit.getRight().get(i).toDoubleArray()));
+    }
+
+    @Test
+    public void saveSplitPlan_withoutRawFiles_shouldNotBeReused() throws IOException
+    {
+        // given
+        File folder = temporaryFolder.newFolder("method", "64");
+        FileUtils.copyFileToDirectory(new File(metadata64.getFolder(), "data.arff"), folder);
+        DatasetMetadata metadata = new DatasetMetadata(folder.getAbsolutePath(), 0, 3);
+        Instances dataset = datasetHelper.loadDataset(metadata, true);
+        SplitPlan plan = new SplitPlan(new DatasetView(dataset), 7, 0.6, false);
+
+        // when
+        datasetHelper.saveSplitPlan(metadata, plan);
+        SplitPlan loadedPlan = datasetHelper.loadSplitPlan(metadata, 7, 0.6, false, dataset.size());
+
+        // then
+        assertThat(loadedPlan, nullValue());
+    }
+
+    @Test
+    public void computeFingerprint_contentChangedWithSameSizeAndModificationTime_shouldDiffer() throws IOException
+    {
+        // given
+        File folder = temporaryFolder.newFolder("method", "8");
+        FileUtils.copyFileToDirectory(new File(metadata8.getFolder(), "ham"), folder);
+        FileUtils.copyFileToDirectory(new File(metadata8.getFolder(), "spam"), folder);
+        File ham = new File(folder, "ham");
+        long lastModified = ham.lastModified();
+        long fingerprint = new DatasetHelper().computeFingerprint(folder.getAbsolutePath());
+
+        // when
+        byte[] bytes = FileUtils.readFileToByteArray(ham);
+        bytes[bytes.length - 1] ^= 1;
+        FileUtils.writeByteArrayToFile(ham, bytes);
+        ham.setLastModified(lastModified);
+
+        // then
+        assertThat(new DatasetHelper().computeFingerprint(folder.getAbsolutePath()), not(equalTo(fingerprint)));
+    }
+
+    @Test
+    public void saveSplitPlan_thenLoad_shouldReturnSamePlanAndRejectOtherSeeds() throws URISyntaxException
+    {
+        // given
+        Instances dataset = datasetHelper.loadDataset(metadata64, false);
+        DatasetView datasetView = new DatasetView(dataset);
+        datasetHelper.balance(datasetView, 7);
+        datasetHelper.shuffle(datasetView, 7);
+        SplitPlan plan = new SplitPlan(datasetView, 7, 0.6, true);
+
+        // when
+        datasetHelper.saveSplitPlan(metadata64, plan);
+        SplitPlan loadedPlan = datasetHelper.loadSplitPlan(metadata64, 7, 0.6, true, dataset.size());
+        SplitPlan otherPlan = datasetHelper.loadSplitPlan(metadata64, 11, 0.6, true, dataset.size());
+        Pair<Instances, Instances> viewSplit = datasetHelper.split(datasetView, 0.6);
+        Pair<Instances, Instances> planSplit = datasetHelper.split(dataset, loadedPlan);
+
+        // then
+        assertThat(loadedPlan, notNullValue());
+        assertThat(loadedPlan.getTrainIndices(), equalTo(plan.getTrainIndices()));
+        assertThat(loadedPlan.getTestIndices(), equalTo(plan.getTestIndices()));
+        assertThat(otherPlan, nullValue());
+        assertThat(planSplit.getLeft().size(), equalTo(viewSplit.getLeft().size()));
+        assertThat(planSplit.getRight().size(), equalTo(viewSplit.getRight().size()));
+        for (int i = 0; i < viewSplit.getLeft().size(); i++)
+            assertThat(planSplit.getLeft().get(i).toDoubleArray(), equalTo(viewSplit.getLeft().get(i).toDoubleArray()));
+        for (int i = 0; i < viewSplit.getRight().size(); i++)
+            assertThat(planSplit.getRight().get(i).toDoubleArray(), equalTo(viewSplit.getRight().get(i).toDoubleArray()));
+
+        // tear down
+        FileUtils.deleteQuietly(Paths.get(metadata64.getFolder(), "splits").toFile());
+    }
+
     @Test
     public void saveToArff_outputDoesExist_shouldPersistArff() throws URISyntaxException
     {
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.data;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import weka.core.Instances;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatasetPrefetcherTest
+{
+    private final ClassLoader classLoader = getClass().getClassLoader();
+    private final DatasetHelper datasetHelper = spy(new DatasetHelper());
+
+    @Test
+    public void load_withPrefetch_shouldReturnSameDatasetsAsDirectLoading() throws URISyntaxException
+    {
+        // given
+        List<DatasetMetadata> metadata = Arrays.asList(buildMetadata("dataset/method/8"), buildMetadata("dataset/method/64"));
+
+        // when
+        try (DatasetPrefetcher prefetcher = new DatasetPrefetcher(datasetHelper, metadata, false, 1, Long.MAX_VALUE))
+        {
+            for (DatasetMetadata m : metadata)
+            {
+                Instances prefetched = prefetcher.load(m);
+                Instances direct = new DatasetHelper().loadDataset(m, false);
+
+                // then
+                assertThat(prefetched, notNullValue());
+                assertThat(prefetched.size(), equalTo(direct.size()));
+                assertThat(prefetched.numAttributes(), equalTo(direct.numAttributes()));
+            }
+        }
+        verify(datasetHelper, times(1)).estimateDatasetSize(metadata.get(1));
+    }
+
+    @Test
+    public void load_withoutMemoryBudget_shouldNotPrefetch() throws URISyntaxException
+    {
+        // given
+        List<DatasetMetadata> metadata = Arrays.asList(buildMetadata("dataset/method/8"), buildMetadata("dataset/method/64"));
+
+        // when
+        try (DatasetPrefetcher prefetcher = new DatasetPrefetcher(datasetHelper, metadata, false, 2, 0))
+        {
+            prefetcher.load(metadata.get(0));
+
+            // then
+            verify(datasetHelper, times(1)).loadDataset(any(DatasetMetadata.class), anyBoolean());
+            verify(datasetHelper, never()).loadDataset(metadata.get(1), false);
+        }
+    }
+
+    private DatasetMetadata buildMetadata(String resourcePath) throws URISyntaxException
+    {
+        String folder = Paths.get(classLoader.getResource(resourcePath).toURI()).toFile().getAbsolutePath();
+        return new DatasetMetadata(folder, 0, 0);
+    }
+}
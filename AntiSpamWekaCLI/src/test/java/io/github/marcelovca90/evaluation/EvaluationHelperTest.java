@@ -105,6 +105,20 @@ public class EvaluationHelperTest
         evaluationHelper.removeAppender(classifier, null);
     }
 
+    @Test
+    public void recordOutcomeSummarize_onlyCancelledExecutions_shouldSummarizeOutcomes() throws Exception
+    {
+        // given
+        Classifier cancelledClassifier = classifierBuilder.withClassName("weka.classifiers.rules.OneR").withOptions("").build();
+
+        // when
+        evaluationHelper.addAppender(cancelledClassifier, null);
+        evaluationHelper.recordOutcome(metadata, cancelledClassifier, Outcome.TIMEOUT);
+        evaluationHelper.recordOutcome(metadata, cancelledClassifier, Outcome.OUT_OF_MEMORY);
+        evaluationHelper.summarize(metadata, cancelledClassifier);
+        evaluationHelper.removeAppender(cancelledClassifier, null);
+    }
+
     private void performTraining(Instances trainSet) throws Exception
     {
         classifier.buildClassifier(trainSet);
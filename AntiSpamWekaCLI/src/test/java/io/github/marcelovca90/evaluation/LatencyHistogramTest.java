@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void getPercentile_emptyHistogram_shouldReturnZero()
+    {
+        // given
+        // when
+        long p50 = histogram.getPercentile(50);
+
+        // then
+        assertThat(p50, equalTo(0L));
+    }
+
+    @Test
+    public void getPercentile_uniformValues_shouldBeWithinRelativeError()
+    {
+        // given
+        for (long value = 1; value <= 100_000; value++)
+            histogram.record(value);
+
+        // when
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        long p100 = histogram.getPercentile(100);
+
+        // then
+        assertThat(histogram.getCount(), equalTo(100_000L));
+        assertThat(p50, greaterThanOrEqualTo(50_000L));
+        assertThat(p50, lessThanOrEqualTo(50_000L + 50_000L / 32));
+        assertThat(p99, greaterThanOrEqualTo(99_000L));
+        assertThat(p99, lessThanOrEqualTo(99_000L + 99_000L / 32));
+        assertThat(p100, equalTo(100_000L));
+        assertThat(histogram.getMean(), equalTo(50_000.5));
+    }
+
+    @Test
+    public void index_everyValue_shouldFallInBucketBoundedByItsHighestEquivalentValue()
+    {
+        // given
+        long[] values = { 0L, 31L, 32L, 63L, 64L, 65L, 1_000L, 123_456_789L, Long.MAX_VALUE };
+
+        for (long value : values)
+        {
+            // when
+            int index = LatencyHistogram.index(value);
+
+            // then
+            assertThat(LatencyHistogram.highestEquivalentValue(index), greaterThanOrEqualTo(value));
+            assertThat(index == 0 || LatencyHistogram.highestEquivalentValue(index - 1) < value, equalTo(true));
+        }
+    }
+}
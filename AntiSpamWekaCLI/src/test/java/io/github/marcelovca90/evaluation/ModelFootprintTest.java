@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.lazy.IBk;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Instances;
+
+public class ModelFootprintTest
+{
+    @Test
+    public void retainedBytes_primitiveArray_shouldCountHeaderAndElements()
+    {
+        assertThat(ModelFootprint.retainedBytes(new int[1000]), equalTo(16L + 4000L));
+    }
+
+    @Test
+    public void measure_modelKeepingTrainingSet_shouldWeighMoreThanConstantModel() throws Exception
+    {
+        // given
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        Instances dataset = new DatasetHelper().loadDataset(new DatasetMetadata(folder, 0, 19), false);
+        IBk ibk = new IBk();
+        ibk.buildClassifier(dataset);
+        ZeroR zeroR = new ZeroR();
+        zeroR.buildClassifier(dataset);
+
+        // when
+        ModelFootprint ibkFootprint = ModelFootprint.measure(ibk);
+        ModelFootprint zeroRFootprint = ModelFootprint.measure(zeroR);
+
+        // then
+        assertThat(ibkFootprint.getSerializedBytes(), greaterThan(zeroRFootprint.getSerializedBytes()));
+        assertThat(ibkFootprint.getRetainedBytes(), greaterThan(zeroRFootprint.getRetainedBytes()));
+        assertThat(ibkFootprint.getRetainedBytes(), greaterThan((long) dataset.numInstances() * dataset.numAttributes() * 8));
+        assertThat(ibkFootprint.getDeserializationNanos(), greaterThan(0L));
+    }
+}
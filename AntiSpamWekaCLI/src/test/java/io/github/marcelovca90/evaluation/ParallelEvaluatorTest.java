@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.MultilayerPerceptron;
+import weka.classifiers.lazy.IBk;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+
+public class ParallelEvaluatorTest
+{
+    private final DatasetHelper datasetHelper = new DatasetHelper();
+    private final EvaluationHelper evaluationHelper = new EvaluationHelper();
+
+    private Instances trainSet;
+    private Instances testSet;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        Instances dataset = datasetHelper.loadDataset(new DatasetMetadata(folder, 0, 19), false);
+        datasetHelper.shuffle(dataset, 0);
+        Pair<Instances, Instances> datasets = datasetHelper.split(dataset, 0.5);
+        trainSet = datasets.getLeft();
+        testSet = datasets.getRight();
+    }
+
+    @Test
+    public void evaluate_threadSafeClassifier_shouldMatchSequentialEvaluation() throws Exception
+    {
+        assertParallelMatchesSequential(new J48(), 0);
+        assertParallelMatchesSequential(new J48(), 1024);
+    }
+
+    @Test
+    public void evaluate_statefulClassifiers_shouldMatchSequentialEvaluation() throws Exception
+    {
+        assertParallelMatchesSequential(new IBk(), 0);
+        assertParallelMatchesSequential(new MultilayerPerceptron(), 1024);
+    }
+
+    private void assertParallelMatchesSequential(Classifier classifier, int bins) throws Exception
+    {
+        // given
+        classifier.buildClassifier(trainSet);
+        TimedEvaluation sequential = new TimedEvaluation(testSet, bins);
+        sequential.evaluateModel(classifier, testSet);
+
+        // when
+        TimedEvaluation parallel = new TimedEvaluation(testSet, bins);
+        parallel.markTestStart();
+        new ParallelEvaluator(4, 16).evaluate(parallel, classifier, testSet);
+        parallel.markTestEnd();
+
+        // then
+        assertThat(ParallelEvaluator.isThreadSafe(classifier), equalTo(classifier instanceof J48));
+        evaluationHelper.measure(sequential).forEach((metric, value) ->
+        {
+            if (isClassificationMetric(metric))
+                assertThat(metric, evaluationHelper.measure(parallel).get(metric), equalTo(value));
+        });
+    }
+
+    private boolean isClassificationMetric(String metric)
+    {
+        return !metric.endsWith("Time") && !metric.endsWith("Latency") && !metric.endsWith("PerSecond");
+    }
+}
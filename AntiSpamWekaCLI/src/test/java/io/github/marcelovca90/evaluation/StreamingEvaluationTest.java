@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+
+public class StreamingEvaluationTest
+{
+    private final DatasetHelper datasetHelper = new DatasetHelper();
+    private final EvaluationHelper evaluationHelper = new EvaluationHelper();
+
+    private Instances trainSet;
+    private Instances testSet;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        Instances dataset = datasetHelper.loadDataset(new DatasetMetadata(folder, 0, 19), false);
+        datasetHelper.shuffle(dataset, 0);
+        Pair<Instances, Instances> datasets = datasetHelper.split(dataset, 0.5);
+        trainSet = datasets.getLeft();
+        testSet = datasets.getRight();
+    }
+
+    @Test
+    public void metrics_fewDistinctScores_shouldMatchStoredPredictionsExactly() throws Exception
+    {
+        // given
+        J48 classifier = new J48();
+        classifier.buildClassifier(trainSet);
+
+        // when
+        TimedEvaluation stored = evaluate(classifier, 0);
+        TimedEvaluation streaming = evaluate(classifier, 1024);
+
+        // then
+        assertThat(streaming.getStreaming().isExact(), equalTo(true));
+        assertSameMetrics(evaluationHelper.measure(streaming), evaluationHelper.measure(stored), 1e-9);
+    }
+
+    @Test
+    public void metrics_moreDistinctScoresThanBins_shouldApproximateStoredPredictions() throws Exception
+    {
+        // given
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.buildClassifier(trainSet);
+
+        // when
+        TimedEvaluation stored = evaluate(classifier, 0);
+        TimedEvaluation streaming = evaluate(classifier, 16);
+
+        // then (only the areas under the curves depend on the bins)
+        assertThat(streaming.getStreaming().isExact(), equalTo(false));
+        Map<String, Double> expected = evaluationHelper.measure(stored);
+        Map<String, Double> actual = evaluationHelper.measure(streaming);
+        assertSameMetrics(actual, expected, 5.0);
+        for (String metric : new String[] { "hamPrecision", "spamRecall", "weightedFMeasure" })
+            assertThat(actual.get(metric), closeTo(expected.get(metric), 1e-9));
+    }
+
+    private TimedEvaluation evaluate(Classifier classifier, int bins) throws Exception
+    {
+        TimedEvaluation evaluation = new TimedEvaluation(testSet, bins);
+        evaluation.evaluateModel(classifier, testSet);
+        return evaluation;
+    }
+
+    private void assertSameMetrics(Map<String, Double> actual, Map<String, Double> expected, double tolerance)
+    {
+        assertThat(actual.keySet(), equalTo(expected.keySet()));
+        expected.forEach((metric, value) ->
+        {
+            if (isClassificationMetric(metric))
+                assertThat(metric, actual.get(metric), closeTo(value, tolerance));
+        });
+    }
+
+    private boolean isClassificationMetric(String metric)
+    {
+        return !metric.endsWith("Time") && !metric.endsWith("Latency") && !metric.endsWith("PerSecond");
+    }
+}
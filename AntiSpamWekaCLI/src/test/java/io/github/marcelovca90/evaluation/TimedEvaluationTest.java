@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.evaluation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instances;
+
+public class TimedEvaluationTest
+{
+    private Instances dataset;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        dataset = new DatasetHelper().loadDataset(new DatasetMetadata(folder, 0, 19), false);
+    }
+
+    @Test
+    public void evaluateModel_everyInstance_shouldRecordItsLatency() throws Exception
+    {
+        // given
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.buildClassifier(dataset);
+        TimedEvaluation evaluation = new TimedEvaluation(dataset);
+
+        // when
+        evaluation.markTestStart();
+        evaluation.evaluateModel(classifier, dataset);
+        evaluation.markTestEnd();
+        Map<String, Double> metrics = new EvaluationHelper().measure(evaluation);
+
+        // then
+        assertThat(evaluation.getLatencies().getCount(), equalTo((long) dataset.numInstances()));
+        assertThat(metrics.get("p999Latency"), greaterThanOrEqualTo(metrics.get("p50Latency")));
+        assertThat(metrics.get("messagesPerSecond"), greaterThan(0.0));
+    }
+
+    @Test
+    public void markTrainStartEnd_training_shouldMeasureResourceUsage() throws Exception
+    {
+        // given
+        NaiveBayes classifier = new NaiveBayes();
+        TimedEvaluation evaluation = new TimedEvaluation(dataset);
+
+        // when
+        evaluation.markTrainStart();
+        classifier.buildClassifier(dataset);
+        evaluation.markTrainEnd();
+        Map<String, Double> metrics = new EvaluationHelper().measure(evaluation);
+
+        // then
+        assertThat(evaluation.getTrainingUsage().getAllocatedBytes(), greaterThan(0L));
+        assertThat(evaluation.getTrainingUsage().getPeakHeapBytes(), greaterThan(0L));
+        assertThat(metrics.get("trainingAllocatedMB"), greaterThan(0.0));
+        assertThat(metrics.get("trainingGcCount"), greaterThanOrEqualTo(0.0));
+    }
+
+    @Test
+    public void markTrainEnd_calledAgainAfterFailedPhase_shouldKeepMeasuredUsage() throws Exception
+    {
+        // given
+        TimedEvaluation evaluation = new TimedEvaluation(dataset);
+        evaluation.markTrainStart();
+        new NaiveBayes().buildClassifier(dataset);
+        evaluation.markTrainEnd();
+        long allocatedBytes = evaluation.getTrainingUsage().getAllocatedBytes();
+
+        // when
+        evaluation.markTrainEnd();
+        evaluation.markTestEnd();
+
+        // then
+        assertThat(evaluation.getTrainingUsage().getAllocatedBytes(), equalTo(allocatedBytes));
+        assertThat(evaluation.getTestingUsage().getAllocatedBytes(), equalTo(0L));
+    }
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import io.github.marcelovca90.configuration.Configuration;
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import io.github.marcelovca90.data.DatasetView;
+import io.github.marcelovca90.data.SplitPlan;
+import io.github.marcelovca90.evaluation.Outcome;
+import io.github.marcelovca90.evaluation.TimedEvaluation;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Instances;
+
+public class CellSupervisorTest
+{
+    private final CellSupervisor cellSupervisor = new CellSupervisor();
+
+    @Test
+    public void run_withinLimits_shouldReturnEvaluation() throws Exception
+    {
+        // given
+        TimedEvaluation evaluation = mock(TimedEvaluation.class);
+
+        // when
+        TimedEvaluation result = cellSupervisor.run(() -> evaluation, 60_000L, 0L);
+
+        // then
+        assertThat(result, sameInstance(evaluation));
+    }
+
+    @Test
+    public void run_exceedingTimeout_shouldBeCancelledWithTimeoutOutcome() throws Exception
+    {
+        // given
+        long start = System.currentTimeMillis();
+
+        // when
+        try
+        {
+            cellSupervisor.run(() ->
+            {
+                Thread.sleep(60_000L);
+                return null;
+            }, 200L, 0L);
+            fail("Cell should have been cancelled.");
+        }
+        catch (CellLimitExceededException e)
+        {
+            // then
+            assertThat(e.getOutcome(), equalTo(Outcome.TIMEOUT));
+            assertThat(System.currentTimeMillis() - start < 10_000L, equalTo(true));
+        }
+    }
+
+    @Test
+    public void run_allocatingOnlyGarbage_shouldStayWithinHeapBudget() throws Exception
+    {
+        // given
+        TimedEvaluation evaluation = mock(TimedEvaluation.class);
+
+        // when
+        TimedEvaluation result = cellSupervisor.run(() ->
+        {
+            // far more than the budget is allocated in total, but nothing is kept
+            for (int i = 0; i < 1024; i++)
+                new byte[1024 * 1024].clone();
+            return evaluation;
+        }, 60_000L, 64L * 1024L * 1024L);
+
+        // then
+        assertThat(result, sameInstance(evaluation));
+    }
+
+    @Test
+    public void run_exceedingHeapBudget_shouldBeCancelledWithOutOfMemoryOutcome() throws Exception
+    {
+        // when
+        try
+        {
+            cellSupervisor.run(() ->
+            {
+                // keep memory reachable until interrupted, while the garbage in between triggers collections
+                List<byte[]> held = new ArrayList<>();
+                while (!Thread.currentThread().isInterrupted() && held.size() < 16 * 1024)
+                {
+                    held.add(new byte[64 * 1024]);
+                    new byte[64 * 1024].clone();
+                }
+                return null;
+            }, 60_000L, 64L * 1024L * 1024L);
+            fail("Cell should have been cancelled.");
+        }
+        catch (CellLimitExceededException e)
+        {
+            // then
+            assertThat(e.getOutcome(), equalTo(Outcome.OUT_OF_MEMORY));
+        }
+    }
+
+    @Test
+    public void run_throwingOutOfMemoryError_shouldReportOutOfMemoryOutcome() throws Exception
+    {
+        // when
+        try
+        {
+            cellSupervisor.run(() ->
+            {
+                throw new OutOfMemoryError("Java heap space");
+            }, 60_000L, 0L);
+            fail("Cell should have failed.");
+        }
+        catch (CellLimitExceededException e)
+        {
+            // then
+            assertThat(e.getOutcome(), equalTo(Outcome.OUT_OF_MEMORY));
+        }
+    }
+
+    @Test
+    public void runForked_withinLimits_shouldReturnEvaluationFromWorker() throws Exception
+    {
+        // given
+        ForkedCell cell = createForkedCell(new ZeroR());
+
+        // when
+        TimedEvaluation evaluation = cellSupervisor.runForked(cell, 60_000L, 0L);
+
+        // then
+        assertThat(evaluation.numInstances() > 0, equalTo(true));
+    }
+
+    @Test
+    public void runForked_ignoringInterruption_shouldKillWorkerWithTimeoutOutcome() throws Exception
+    {
+        // given
+        ForkedCell cell = createForkedCell(new UninterruptibleClassifier());
+        long start = System.currentTimeMillis();
+
+        // when
+        try
+        {
+            cellSupervisor.runForked(cell, 2_000L, 0L);
+            fail("Cell should have been cancelled.");
+        }
+        catch (CellLimitExceededException e)
+        {
+            // then
+            assertThat(e.getOutcome(), equalTo(Outcome.TIMEOUT));
+            assertThat(System.currentTimeMillis() - start < 30_000L, equalTo(true));
+        }
+    }
+
+    private ForkedCell createForkedCell(Classifier classifier) throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        DatasetMetadata metadata = new DatasetMetadata(folder, 0, 0);
+        Instances dataset = new DatasetHelper().loadDataset(metadata, false);
+        SplitPlan plan = new SplitPlan(new DatasetView(dataset), 2, 0.5, false);
+        return new ForkedCell(new Configuration(), metadata, dataset, Triple.of(classifier.getClass().getName(), "", ""), classifier, plan, false, false, 2, 0.5);
+    }
+
+    public static class UninterruptibleClassifier extends AbstractClassifier
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void buildClassifier(Instances data)
+        {
+            // like most Weka classifiers, never gives up when interrupted
+            while (true)
+            {
+                try
+                {
+                    Thread.sleep(60_000L);
+                }
+                catch (InterruptedException e)
+                {
+                    // ignored on purpose
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.configuration.Configuration;
+
+public class DaemonTest
+{
+    private Runner runner;
+    private Daemon daemon;
+    private Thread serverThread;
+    private DaemonClient client;
+    private String filename;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        runner = mock(Runner.class);
+        daemon = new Daemon(runner, 0, 1);
+        serverThread = new Thread(daemon::serve);
+        serverThread.start();
+        client = new DaemonClient(daemon.getPort(), new PrintStream(new ByteArrayOutputStream()));
+        filename = Paths.get(getClass().getClassLoader().getResource("properties/valid.properties").toURI()).toFile().getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        daemon.close();
+        serverThread.join(5000L);
+    }
+
+    @Test
+    public void submit_validProperties_shouldRunExperimentAndReturnZero() throws Exception
+    {
+        // given
+        verify(runner).keepDatasetsResident(anyInt());
+
+        // when
+        int status = client.submit(filename, true);
+
+        // then
+        assertThat(status, equalTo(0));
+        verify(runner).run(any(Configuration.class), eq(true));
+    }
+
+    @Test
+    public void submit_failingExperiment_shouldReturnOneAndKeepServing() throws Exception
+    {
+        // given
+        doThrow(new IllegalStateException()).when(runner).run(any(Configuration.class), eq(false));
+
+        // when
+        int first = client.submit(filename, false);
+        int second = client.submit(filename, true);
+
+        // then
+        assertThat(first, equalTo(1));
+        assertThat(second, equalTo(0));
+    }
+
+    @Test
+    public void shutdown_shouldStopServing() throws Exception
+    {
+        // given
+        // when
+        int status = client.shutdown();
+        serverThread.join(5000L);
+
+        // then
+        assertThat(status, equalTo(0));
+        assertThat(serverThread.isAlive(), equalTo(false));
+    }
+
+    @Test
+    public void submit_oversizedPayload_shouldReturnOneAndKeepServing() throws Exception
+    {
+        // given
+        String reply;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort()))
+        {
+            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            outputStream.writeUTF(Daemon.RUN);
+            outputStream.writeInt(Integer.MAX_VALUE);
+            outputStream.flush();
+
+            // when
+            reply = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+        }
+        int next = client.submit(filename, true);
+
+        // then
+        assertThat(reply, equalTo(Daemon.EXIT + 1));
+        assertThat(next, equalTo(0));
+    }
+
+    @Test
+    public void resolvePaths_relativePaths_shouldBecomeAbsolute() throws Exception
+    {
+        // given
+        byte[] payload = "metadata=/data/metadata.txt\njournal=journal.tsv\ncostHistory=\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        // when
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(DaemonClient.resolvePaths(payload)));
+
+        // then
+        assertThat(properties.getProperty("metadata"), equalTo("/data/metadata.txt"));
+        assertThat(properties.getProperty("journal"), equalTo(new File("journal.tsv").getAbsolutePath()));
+        assertThat(properties.getProperty("costHistory"), equalTo(""));
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.marcelovca90.evaluation.Outcome;
+
+public class ExperimentJournalTest
+{
+    private static final String SETTINGS = "balanceClasses=true;shrinkFeatures=true;includeEmpty=true;evaluationBins=0";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void append_thenResume_shouldReturnLatestEntryOfEachCell() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("weightedFMeasure", 0.1 + 0.2);
+        metrics.put("trainingTime", 1234.0);
+
+        // when
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.bayes.NaiveBayes", "-K", 2, 8, Collections.singletonMap("weightedFMeasure", 50.0)));
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.bayes.NaiveBayes", "-K", 2, 8, metrics));
+        }
+        ExperimentJournal.Entry entry;
+        ExperimentJournal.Entry missing;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 1L, SETTINGS))
+        {
+            entry = journal.get("/data/method/8", "weka.classifiers.bayes.NaiveBayes", "-K", 2);
+            missing = journal.get("/data/method/8", "weka.classifiers.bayes.NaiveBayes", "-K", 3);
+        }
+
+        // then
+        assertThat(entry, notNullValue());
+        assertThat(entry.getNumFeatures(), equalTo(8));
+        assertThat(entry.getMetrics(), equalTo(metrics));
+        assertThat(missing, nullValue());
+    }
+
+    @Test
+    public void resume_withTornLastLine_shouldIgnoreIt() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.trees.J48", "", 2, 8, Collections.singletonMap("weightedFMeasure", 90.0)));
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.trees.J48", "", 3, 8, Collections.singletonMap("weightedFMeasure", 91.0)));
+        }
+        String content = FileUtils.readFileToString(file, "UTF-8");
+        FileUtils.writeStringToFile(file, content.substring(0, content.length() - 8), "UTF-8");
+
+        // when
+        ExperimentJournal.Entry first;
+        ExperimentJournal.Entry torn;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 1L, SETTINGS))
+        {
+            first = journal.get("/data/method/8", "weka.classifiers.trees.J48", "", 2);
+            torn = journal.get("/data/method/8", "weka.classifiers.trees.J48", "", 3);
+        }
+
+        // then
+        assertThat(first, notNullValue());
+        assertThat(torn, nullValue());
+    }
+
+    @Test
+    public void append_withOutcome_thenResume_shouldReturnOutcome() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.functions.SMO", "-C 1.0", 2, Outcome.TIMEOUT));
+        }
+
+        // when
+        ExperimentJournal.Entry entry;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 1L, SETTINGS))
+        {
+            entry = journal.get("/data/method/8", "weka.classifiers.functions.SMO", "-C 1.0", 2);
+        }
+
+        // then
+        assertThat(entry, notNullValue());
+        assertThat(entry.getOutcome(), equalTo(Outcome.TIMEOUT));
+        assertThat(entry.getMetrics().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void resume_withChangedDataset_shouldIgnoreEntries() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.trees.J48", "", 2, 8, Collections.singletonMap("weightedFMeasure", 90.0)));
+        }
+
+        // when
+        ExperimentJournal.Entry entry;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 2L, SETTINGS))
+        {
+            entry = journal.get("/data/method/8", "weka.classifiers.trees.J48", "", 2);
+        }
+
+        // then
+        assertThat(entry, nullValue());
+    }
+
+    @Test
+    public void resume_withChangedSettings_shouldIgnoreEntries() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.trees.J48", "", 2, 8, Collections.singletonMap("weightedFMeasure", 90.0)));
+        }
+
+        // when
+        ExperimentJournal.Entry entry;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 1L, SETTINGS.replace("balanceClasses=true", "balanceClasses=false")))
+        {
+            entry = journal.get("/data/method/8", "weka.classifiers.trees.J48", "", 2);
+        }
+
+        // then
+        assertThat(entry, nullValue());
+    }
+
+    @Test
+    public void open_withoutResume_shouldStartFromEmptyJournal() throws Exception
+    {
+        // given
+        File file = temporaryFolder.newFile("journal.tsv");
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS))
+        {
+            journal.append(new ExperimentJournal.Entry("/data/method/8", "weka.classifiers.trees.J48", "", 2, 8, Collections.singletonMap("weightedFMeasure", 90.0)));
+        }
+
+        // when
+        new ExperimentJournal(file.getAbsolutePath(), false, folder -> 1L, SETTINGS).close();
+        ExperimentJournal.Entry entry;
+        try (ExperimentJournal journal = new ExperimentJournal(file.getAbsolutePath(), true, folder -> 1L, SETTINGS))
+        {
+            entry = journal.get("/data/method/8", "weka.classifiers.trees.J48", "", 2);
+        }
+
+        // then
+        assertThat(entry, nullValue());
+        assertThat(new File(file.getAbsolutePath() + ".previous").length() > 0, equalTo(true));
+    }
+}
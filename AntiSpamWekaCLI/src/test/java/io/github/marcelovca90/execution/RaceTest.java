@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RaceTest
+{
+    @Test
+    public void survivors_clearlyWorseCandidates_shouldBeEliminated()
+    {
+        // given
+        Race race = new Race(1, 2.0, 0.05);
+        List<double[]> scores = Arrays.asList(
+            new double[] { 80.1, 79.8, 80.3, 80.0 },
+            new double[] { 95.2, 95.0, 95.4, 95.1 },
+            new double[] { 60.3, 60.1, 60.8, 60.2 },
+            new double[] { 94.9, 95.1, 95.0, 95.2 });
+
+        // when
+        List<Integer> survivors = race.survivors(scores);
+
+        // then
+        assertThat(survivors, equalTo(Arrays.asList(1, 3)));
+    }
+
+    @Test
+    public void survivors_indistinguishableCandidates_shouldAllSurvive()
+    {
+        // given
+        Race race = new Race(1, 2.0, 0.05);
+        List<double[]> scores = Arrays.asList(
+            new double[] { 90.0, 91.0, 89.0 },
+            new double[] { 91.0, 89.0, 90.0 },
+            new double[] { 89.0, 90.0, 91.0 });
+
+        // when
+        List<Integer> survivors = race.survivors(scores);
+
+        // then
+        assertThat(survivors, equalTo(Arrays.asList(0, 1, 2)));
+    }
+
+    @Test
+    public void survivors_singleRun_shouldCutToTopFraction()
+    {
+        // given
+        Race race = new Race(1, 2.0, 0.05);
+        List<double[]> scores = Arrays.asList(new double[] { 90.0 }, new double[] { 80.0 }, new double[] { 70.0 }, new double[] { 60.0 });
+
+        // when
+        List<Integer> survivors = race.survivors(scores);
+
+        // then
+        assertThat(survivors, equalTo(Arrays.asList(0, 1)));
+    }
+
+    @Test
+    public void survivors_cancelledCandidate_shouldBeEliminated()
+    {
+        // given
+        Race race = new Race(2, 2.0, 0.05);
+        List<double[]> scores = Arrays.asList(new double[] { 90.0, 91.0 }, null, new double[] { 80.0, 81.0 });
+
+        // when
+        List<Integer> survivors = race.survivors(scores);
+
+        // then
+        assertThat(survivors, equalTo(Arrays.asList(0, 2)));
+    }
+}
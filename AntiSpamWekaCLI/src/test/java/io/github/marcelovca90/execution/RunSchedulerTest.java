@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.execution;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.marcelovca90.evaluation.TimedEvaluation;
+
+public class RunSchedulerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void schedule_withHistory_shouldStartLongestExpectedTaskFirstAndRecordCosts() throws Exception
+    {
+        // given
+        File historyFile = temporaryFolder.newFile("costs.properties");
+        FileUtils.writeLines(historyFile, Arrays.asList("slow.rate=10.0", "slow.count=1", "fast.rate=1.0", "fast.count=1"));
+        TimedEvaluation evaluation = mock(TimedEvaluation.class);
+        when(evaluation.trainingTime()).thenReturn(300L);
+        when(evaluation.testingTime()).thenReturn(100L);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<RunScheduler.Task> tasks = Arrays.asList(
+            new RunScheduler.Task("fast", 10, 10, () -> { started.add("fast"); return evaluation; }),
+            new RunScheduler.Task("unknown", 10, 10, () -> { started.add("unknown"); return evaluation; }),
+            new RunScheduler.Task("slow", 10, 10, () -> { started.add("slow"); return evaluation; }));
+
+        // when
+        List<Future<TimedEvaluation>> futures;
+        try (RunScheduler scheduler = new RunScheduler(1, historyFile.getAbsolutePath()))
+        {
+            futures = scheduler.schedule(tasks);
+            for (Future<TimedEvaluation> future : futures)
+                future.get();
+        }
+
+        // then
+        assertThat(futures.size(), equalTo(3));
+        assertThat(started, equalTo(Arrays.asList("slow", "unknown", "fast")));
+        Properties history = load(historyFile);
+        assertThat(history.getProperty("fast.rate"), equalTo("2.5"));
+        assertThat(history.getProperty("fast.count"), equalTo("2"));
+        assertThat(history.getProperty("unknown.rate"), equalTo("4.0"));
+        assertThat(history.getProperty("unknown.count"), equalTo("1"));
+    }
+
+    @Test
+    public void schedule_unseenClassifiers_shouldStartAveragedDependenceEstimatorsBeforeNaiveBayes() throws Exception
+    {
+        // given
+        TimedEvaluation evaluation = mock(TimedEvaluation.class);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<RunScheduler.Task> tasks = Arrays.asList(
+            new RunScheduler.Task("weka.classifiers.bayes.NaiveBayes ", 100, 8, () -> { started.add("NaiveBayes"); return evaluation; }),
+            new RunScheduler.Task("weka.classifiers.bayes.AveragedNDependenceEstimators.A2DE -F 1", 100, 8, () -> { started.add("A2DE"); return evaluation; }),
+            new RunScheduler.Task("weka.classifiers.functions.MLPClassifier -N 2", 100, 8, () -> { started.add("MLPClassifier"); return evaluation; }));
+
+        // when
+        try (RunScheduler scheduler = new RunScheduler(1, ""))
+        {
+            for (Future<TimedEvaluation> future : scheduler.schedule(tasks))
+                future.get();
+        }
+
+        // then
+        assertThat(started.indexOf("A2DE"), lessThan(started.indexOf("NaiveBayes")));
+        assertThat(started.indexOf("MLPClassifier"), lessThan(started.indexOf("NaiveBayes")));
+        assertThat(RunScheduler.getCostPrior("net.sourceforge.wekaclassalgos.neural.multilayerperceptron.BackPropagation -I 500"), greaterThan(RunScheduler.getCostPrior("weka.classifiers.bayes.NaiveBayes ")));
+    }
+
+    @Test
+    public void estimate_withoutHistory_shouldFallBackToDatasetSize()
+    {
+        // given
+        RunScheduler.Task small = new RunScheduler.Task("any", 100, 8, null);
+        RunScheduler.Task large = new RunScheduler.Task("any", 1000, 64, null);
+
+        // when
+        try (RunScheduler scheduler = new RunScheduler(1, ""))
+        {
+            // then
+            assertThat(scheduler.estimate(small), equalTo(800.0));
+            assertThat(scheduler.estimate(large), equalTo(64000.0));
+        }
+    }
+
+    @Test
+    public void estimate_withoutHistoryForClassifier_shouldUseFamilyPrior() throws Exception
+    {
+        // given
+        File historyFile = temporaryFolder.newFile("costs.properties");
+        FileUtils.writeLines(historyFile, Arrays.asList("weka.classifiers.trees.J48\\ -C\\ 0.25.rate=2.0", "weka.classifiers.trees.J48\\ -C\\ 0.25.count=1"));
+        RunScheduler.Task naiveBayes = new RunScheduler.Task("weka.classifiers.bayes.NaiveBayes ", 1000, 64, null);
+        RunScheduler.Task perceptron = new RunScheduler.Task("weka.classifiers.functions.MultilayerPerceptron -L 0.3", 100, 8, null);
+        RunScheduler.Task nearestNeighbours = new RunScheduler.Task("weka.classifiers.lazy.IBk -K 1", 100, 8, null);
+
+        // when
+        try (RunScheduler scheduler = new RunScheduler(1, historyFile.getAbsolutePath()))
+        {
+            // then
+            assertThat(scheduler.estimate(naiveBayes), equalTo(12800.0));
+            assertThat(scheduler.estimate(perceptron), equalTo(80000.0));
+            assertThat(scheduler.estimate(nearestNeighbours), equalTo(80000.0));
+        }
+    }
+
+    private Properties load(File file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file))
+        {
+            properties.load(input);
+        }
+        return properties;
+    }
+}
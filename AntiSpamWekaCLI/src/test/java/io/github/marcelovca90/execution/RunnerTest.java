@@ -23,23 +23,28 @@ package io.github.marcelovca90.execution;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
-import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.compress.utils.Sets;
 import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -51,6 +56,8 @@ import io.github.marcelovca90.configuration.Configuration;
 import io.github.marcelovca90.configuration.ConfigurationLoader;
 import io.github.marcelovca90.data.DatasetHelper;
 import io.github.marcelovca90.data.DatasetMetadata;
+import io.github.marcelovca90.data.DatasetView;
+import io.github.marcelovca90.data.SplitPlan;
 import io.github.marcelovca90.evaluation.EvaluationHelper;
 import io.github.marcelovca90.evaluation.TimedEvaluation;
 import weka.classifiers.Classifier;
@@ -82,6 +89,9 @@ public class RunnerTest
     @InjectMocks
     private Runner runner;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void main_falseConfiguration_shouldNotCallMethods() throws Exception
     {
@@ -108,6 +118,64 @@ public class RunnerTest
         verifyCalls(true, true, true, true, true);
     }
 
+    @Test
+    public void main_parallelRunsConfiguration_shouldCallMethods() throws Exception
+    {
+        // given
+        mockCalls(2, false, true, true, true, true, true);
+        when(configuration.getParallelRuns()).thenReturn(2);
+
+        // when
+        runner.run();
+
+        // then
+        verifyCalls(true, true, true, true, true);
+        verify(datasetHelper, times(2)).saveModel(any(DatasetMetadata.class), any(Classifier.class), eq(2));
+        verify(datasetHelper, times(2)).saveModel(any(DatasetMetadata.class), any(Classifier.class), eq(3));
+    }
+
+    @Test
+    public void main_adaptiveRunsConfiguration_shouldStopOnceTargetIntervalIsMet() throws Exception
+    {
+        // given
+        mockCalls(10, false, false, false, false, false, false);
+        when(configuration.isAdaptiveRuns()).thenReturn(true);
+        when(configuration.getMinRuns()).thenReturn(2);
+        when(configuration.getMaxRuns()).thenReturn(5);
+        when(configuration.getTargetMetric()).thenReturn("weightedFMeasure");
+        when(configuration.getTargetHalfWidth()).thenReturn(0.5);
+        when(evaluationHelper.hasConverged(any(Classifier.class), eq("weightedFMeasure"), eq(0.5))).thenReturn(false, true);
+
+        // when
+        runner.run();
+
+        // then
+        verify(evaluationHelper, times(5)).compute(any(Classifier.class), any(TimedEvaluation.class));
+        verify(evaluationHelper, times(3)).hasConverged(any(Classifier.class), eq("weightedFMeasure"), eq(0.5));
+        verify(evaluationHelper, times(2)).summarize(any(DatasetMetadata.class), any(Classifier.class));
+    }
+
+    @Test
+    public void main_resumeWithCompleteJournal_shouldRestoreCellsWithoutRunningThem() throws Exception
+    {
+        // given
+        mockCalls(2, false, false, false, false, false, false);
+        File journalFile = temporaryFolder.newFile("journal.tsv");
+        when(configuration.getJournal()).thenReturn(journalFile.getAbsolutePath());
+        when(evaluationHelper.compute(any(Classifier.class), any(TimedEvaluation.class))).thenReturn(Collections.singletonMap("weightedFMeasure", 95.0));
+        runner.run(false);
+
+        // when
+        runner.run(true);
+
+        // then
+        verify(datasetHelper, times(1)).loadDataset(any(DatasetMetadata.class), anyBoolean());
+        verify(evaluationHelper, times(4)).compute(any(Classifier.class), any(TimedEvaluation.class));
+        verify(evaluationHelper, times(4)).restore(any(Classifier.class), eq(Collections.singletonMap("weightedFMeasure", 95.0)));
+        verify(evaluationHelper, times(8)).print(any(DatasetMetadata.class), any(Classifier.class));
+        verify(evaluationHelper, times(4)).summarize(any(DatasetMetadata.class), any(Classifier.class));
+    }
+
     @Test
     public void main_tsneConfiguration_shouldCallMethods() throws Exception
     {
@@ -121,6 +189,40 @@ public class RunnerTest
         verify(tsneAnalyser).run(any(DatasetMetadata.class), any(Instances.class), anyBoolean());
     }
 
+    @Test
+    public void main_streamingConfiguration_shouldTrainUpdateableClassifiersWithoutLoadingDatasets() throws Exception
+    {
+        // given
+        String folder = Paths.get(classLoader.getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        List<Triple<String, String, String>> classNamesOptionsAndLogFilenames = Arrays.asList(
+            Triple.of("weka.classifiers.bayes.NaiveBayesUpdateable", "", ""));
+
+        when(configuration.getClassNamesOptionsAndLogNames()).thenReturn(classNamesOptionsAndLogFilenames);
+        when(configuration.getMetadataPath()).thenReturn(folder);
+        when(configuration.getRuns()).thenReturn(2);
+        when(configuration.shouldStreamUpdateable()).thenReturn(true);
+        when(configuration.getStreamChunkSize()).thenReturn(100);
+        when(configLoader.load()).thenReturn(configuration);
+
+        when(classifierBuilder.isUpdateable(anyString())).thenCallRealMethod();
+        when(classifierBuilder.withClassName(anyString())).thenCallRealMethod();
+        when(classifierBuilder.withOptions(anyString())).thenCallRealMethod();
+        when(classifierBuilder.customize(any(DatasetMetadata.class))).thenCallRealMethod();
+        when(classifierBuilder.build()).thenCallRealMethod();
+
+        when(datasetHelper.loadMetadata(anyString())).thenReturn(Sets.newHashSet(new DatasetMetadata(folder, 0, 19)));
+        when(datasetHelper.openInstanceStream(any(DatasetMetadata.class), anyBoolean(), anyInt(), anyLong())).thenCallRealMethod();
+
+        // when
+        runner.run();
+
+        // then
+        verify(datasetHelper, never()).loadDataset(any(DatasetMetadata.class), anyBoolean());
+        verify(datasetHelper, times(4)).openInstanceStream(any(DatasetMetadata.class), anyBoolean(), anyInt(), anyLong());
+        verify(evaluationHelper, times(2)).compute(any(Classifier.class), any(TimedEvaluation.class));
+        verify(evaluationHelper, times(1)).summarize(any(DatasetMetadata.class), any(Classifier.class));
+    }
+
     private void mockCalls(int runs, boolean tsne, boolean shrink, boolean balance, boolean addEmpty, boolean saveModel, boolean saveArff) throws URISyntaxException
     {
         String filename = Paths.get(classLoader.getResource("metadata.txt").toURI()).toFile().getAbsolutePath();
@@ -149,7 +251,7 @@ public class RunnerTest
         when(datasetHelper.loadMetadata(anyString())).thenReturn(Sets.newHashSet(new DatasetMetadata(folder, 0, 19)));
         when(datasetHelper.loadDataset(any(DatasetMetadata.class), anyBoolean())).thenCallRealMethod();
         if (shrink) when(datasetHelper.selectAttributes(any(Instances.class))).thenCallRealMethod();
-        when(datasetHelper.split(any(Instances.class), anyDouble())).thenCallRealMethod();
+        when(datasetHelper.split(any(Instances.class), any(SplitPlan.class))).thenCallRealMethod();
 
         doNothing().when(tsneAnalyser).run(any(DatasetMetadata.class), any(Instances.class), anyBoolean());
     }
@@ -157,7 +259,7 @@ public class RunnerTest
     private void verifyCalls(boolean shrink, boolean balance, boolean addEmpty, boolean saveModel, boolean saveArff)
     {
         verify(datasetHelper, shrink ? times(1) : never()).selectAttributes(any(Instances.class));
-        verify(datasetHelper, balance ? times(4) : never()).balance(any(Instances.class), anyInt());
+        verify(datasetHelper, balance ? times(4) : never()).balance(any(DatasetView.class), anyInt());
         verify(datasetHelper, addEmpty ? times(4) : never()).addEmptyInstances(any(Instances.class), any(DatasetMetadata.class));
         verify(datasetHelper, saveModel ? times(4) : never()).saveModel(any(DatasetMetadata.class), any(Classifier.class), anyInt());
         verify(datasetHelper, saveArff ? times(1) : never()).saveToArff(any(DatasetMetadata.class), any(Instances.class));
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.SGD;
+import weka.classifiers.functions.SMO;
+import weka.classifiers.functions.SPegasos;
+import weka.classifiers.functions.VotedPerceptron;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class LinearExporterTest
+{
+    private Instances dataset;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        dataset = new DatasetHelper().loadDataset(new DatasetMetadata(folder, 0, 19), false);
+    }
+
+    @Test
+    public void export_sgdWithHingeLoss_shouldPredictLikeOriginal() throws Exception
+    {
+        assertExportedMatchesOriginal(new SGD(), "-F 0 -L 0.01 -R 1.0E-4 -E 500 -C 0.001 -S 1");
+    }
+
+    @Test
+    public void export_sgdWithLogLoss_shouldPredictLikeOriginal() throws Exception
+    {
+        assertExportedMatchesOriginal(new SGD(), "-F 1 -L 0.01 -R 1.0E-4 -E 500 -C 0.001 -S 1");
+    }
+
+    @Test
+    public void export_sPegasos_shouldPredictLikeOriginal() throws Exception
+    {
+        assertExportedMatchesOriginal(new SPegasos(), "-F 0 -L 1.0E-4 -E 500");
+    }
+
+    @Test
+    public void export_smoWithLinearKernel_shouldPredictLikeOriginal() throws Exception
+    {
+        assertExportedMatchesOriginal(new SMO(), "-C 1.0 -L 0.001 -P 1.0E-12 -N 0 -V -1 -W 1 -K \"weka.classifiers.functions.supportVector.PolyKernel -E 1.0 -C 250007\"");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void export_votedPerceptron_shouldThrowException() throws Exception
+    {
+        // given
+        VotedPerceptron classifier = new VotedPerceptron();
+        classifier.buildClassifier(dataset);
+
+        // when
+        new LinearExporter().export(classifier, dataset);
+    }
+
+    @Test
+    public void distributionForInstance_missingValue_shouldFallBackToOriginal() throws Exception
+    {
+        // given
+        SGD classifier = new SGD();
+        classifier.buildClassifier(dataset);
+        Classifier compiled = CompiledClassifier.compileIfPossible(classifier, dataset);
+        Instances instances = new Instances(dataset);
+        instances.instance(0).setMissing(0);
+
+        // when
+        double[] distribution = compiled.distributionForInstance(instances.instance(0));
+
+        // then
+        assertThat(distribution, equalTo(classifier.distributionForInstance(instances.instance(0))));
+    }
+
+    private void assertExportedMatchesOriginal(AbstractClassifier classifier, String options) throws Exception
+    {
+        // given
+        classifier.setOptions(Utils.splitOptions(options));
+        classifier.buildClassifier(dataset);
+
+        // when
+        LinearScorer scorer = new LinearExporter().export(classifier, dataset);
+        double[][] rows = new double[dataset.numInstances()][];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = dataset.instance(i).toDoubleArray();
+        double[][] distributions = scorer.distributionsForValues(rows);
+
+        // then (folding the normalization into the weights only changes the last bits of the decision value)
+        for (int i = 0; i < rows.length; i++)
+        {
+            double[] expected = classifier.distributionForInstance(dataset.instance(i));
+            for (int k = 0; k < expected.length; k++)
+                assertThat(distributions[i][k], closeTo(expected[k], 1e-9));
+        }
+    }
+}
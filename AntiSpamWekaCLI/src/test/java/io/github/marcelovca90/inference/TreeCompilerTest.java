@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.inference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.DatasetMetadata;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.REPTree;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class TreeCompilerTest
+{
+    private Instances dataset;
+    private Instances datasetWithMissingValues;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        dataset = new DatasetHelper().loadDataset(new DatasetMetadata(folder, 0, 19), false);
+
+        // missing values take the weighted paths of every tree
+        Random random = new Random(0);
+        datasetWithMissingValues = new Instances(dataset);
+        for (int i = 0; i < datasetWithMissingValues.numInstances(); i++)
+            for (int j = 0; j < datasetWithMissingValues.numAttributes() - 1; j++)
+                if (random.nextInt(10) == 0)
+                    datasetWithMissingValues.instance(i).setMissing(j);
+    }
+
+    @Test
+    public void compile_j48_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new J48(), "-C 0.25 -M 2", false);
+    }
+
+    @Test
+    public void compile_repTree_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new REPTree(), "-M 2 -V 0.001 -N 3 -S 1 -L -1 -I 0.0", false);
+    }
+
+    @Test
+    public void compile_randomTree_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new RandomTree(), "-K 0 -M 1.0 -V 0.001 -S 1", false);
+    }
+
+    @Test
+    public void compile_randomForest_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new RandomForest(), "-P 100 -I 10 -num-slots 1 -K 0 -M 1.0 -V 0.001 -S 1", false);
+    }
+
+    @Test
+    public void compile_randomForestWithGeneratedCode_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new RandomForest(), "-P 100 -I 10 -num-slots 1 -K 0 -M 1.0 -V 0.001 -S 1", true);
+    }
+
+    @Test
+    public void compile_j48WithGeneratedCode_shouldPredictExactlyLikeOriginal() throws Exception
+    {
+        assertCompiledMatchesOriginal(new J48(), "-C 0.25 -M 2", true);
+    }
+
+    private void assertCompiledMatchesOriginal(AbstractClassifier classifier, String options, boolean generateCode) throws Exception
+    {
+        // given
+        classifier.setOptions(Utils.splitOptions(options));
+        classifier.buildClassifier(dataset);
+        TreeCompiler compiler = generateCode ? new TreeCompiler(new TreeCodeGenerator()) : new TreeCompiler();
+
+        // when
+        CompiledModel compiled = compiler.compile(classifier, dataset);
+
+        // then
+        assertSameDistributions(classifier, compiled, dataset);
+        assertSameDistributions(classifier, compiled, datasetWithMissingValues);
+    }
+
+    private void assertSameDistributions(Classifier classifier, CompiledModel compiled, Instances instances) throws Exception
+    {
+        for (int i = 0; i < instances.numInstances(); i++)
+            assertThat(compiled.distributionForInstance(instances.instance(i)), equalTo(classifier.distributionForInstance(instances.instance(i))));
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import io.github.marcelovca90.data.InstanceStream;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+
+public class BatchScorerTest
+{
+    private String filename;
+    private BatchScorer batchScorer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        String folder = Paths.get(getClass().getClassLoader().getResource("dataset/method/8").toURI()).toFile().getAbsolutePath();
+        filename = folder + File.separator + "spam";
+
+        Classifier classifier = mock(Classifier.class);
+        when(classifier.distributionForInstance(any(Instance.class))).thenReturn(new double[] { 0.25, 0.75 });
+        batchScorer = new BatchScorer(classifier, 1);
+    }
+
+    @Test
+    public void score_csv_shouldWriteOneLinePerMessageInInputOrder() throws Exception
+    {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        long count;
+        try (InstanceStream stream = new DatasetHelper().openInstanceStream(filename, 7))
+        {
+            count = batchScorer.score(stream, outputStream, BatchScorer.Format.CSV);
+        }
+
+        // then
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\\r?\\n");
+        assertThat(lines.length, equalTo((int) count + 1));
+        assertThat(lines[0], equalTo("index,actual,predicted,HAM,SPAM"));
+        for (int i = 1; i < lines.length; i++)
+            assertThat(lines[i], equalTo((i - 1) + ",SPAM,SPAM,0.250000,0.750000"));
+    }
+
+    @Test
+    public void score_binary_shouldWriteNumberOfClassesAndOneFloatPerClass() throws Exception
+    {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        long count;
+        try (InstanceStream stream = new DatasetHelper().openInstanceStream(filename, 7))
+        {
+            count = batchScorer.score(stream, outputStream, BatchScorer.Format.BINARY);
+        }
+
+        // then
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(inputStream.readInt(), equalTo(2));
+        assertThat(outputStream.size(), equalTo(Integer.BYTES + (int) count * 2 * Float.BYTES));
+        assertThat(inputStream.readFloat(), equalTo(0.25f));
+        assertThat(inputStream.readFloat(), equalTo(0.75f));
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+
+public class ScoringServerTest
+{
+    private ScoringServer server;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Classifier classifier = mock(Classifier.class);
+        when(classifier.distributionForInstance(any(Instance.class))).thenReturn(new double[] { 0.25, 0.75 });
+        server = new ScoringServer(new ScoringService(classifier, new DatasetHelper().createStructure(2), 1, 64, 100L), 0, 0);
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void socket_rawBinaryRequests_shouldReturnDistributionsOnSameConnection() throws Exception
+    {
+        // given
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getSocketPort()))
+        {
+            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            for (int request = 0; request < 2; request++)
+            {
+                // when
+                ScoringServer.writeDistributions(outputStream, new double[][] { { 1.0, 2.0 }, { 3.0, 4.0 }, { 5.0, 6.0 } });
+                outputStream.flush();
+                double[][] distributions = ScoringServer.readVectors(inputStream, 2);
+
+                // then
+                assertThat(distributions.length, equalTo(3));
+                assertThat(distributions[2][0], equalTo(0.25));
+                assertThat(distributions[2][1], equalTo(0.75));
+            }
+        }
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void readVectors_countAboveCap_shouldBeRejectedBeforeAllocating() throws Exception
+    {
+        // given
+        byte[] header = ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).putInt(2).array();
+
+        // when
+        ScoringServer.readVectors(new DataInputStream(new ByteArrayInputStream(header)), 2);
+    }
+
+    @Test
+    public void http_wrongNumberOfAttributes_shouldReturnBadRequest() throws Exception
+    {
+        // given
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getHttpPort() + "/score").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+
+        // when
+        try (DataOutputStream outputStream = new DataOutputStream(connection.getOutputStream()))
+        {
+            ScoringServer.writeDistributions(outputStream, new double[][] { { 1.0, 2.0, 3.0 } });
+        }
+
+        // then
+        assertThat(connection.getResponseCode(), equalTo(400));
+    }
+
+    @Test
+    public void http_failingModel_shouldReturnServerError() throws Exception
+    {
+        // given
+        Classifier failing = mock(Classifier.class);
+        when(failing.distributionForInstance(any(Instance.class))).thenThrow(new IllegalStateException("Model is broken."));
+        try (ScoringServer failingServer = new ScoringServer(new ScoringService(failing, new DatasetHelper().createStructure(2), 1, 64, 100L), 0, 0))
+        {
+            failingServer.start();
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + failingServer.getHttpPort() + "/score").openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+
+            // when
+            try (DataOutputStream outputStream = new DataOutputStream(connection.getOutputStream()))
+            {
+                ScoringServer.writeDistributions(outputStream, new double[][] { { 1.0, 2.0 } });
+            }
+
+            // then
+            assertThat(connection.getResponseCode(), equalTo(500));
+        }
+    }
+}
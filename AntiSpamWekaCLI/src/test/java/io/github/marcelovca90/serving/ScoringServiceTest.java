@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Marcelo Vinícius Cysneiros Aragão
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package io.github.marcelovca90.serving;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.marcelovca90.data.DatasetHelper;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+
+public class ScoringServiceTest
+{
+    private Classifier classifier;
+    private ScoringService service;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // the mock classifies a vector as spam with the probability given by its first attribute
+        classifier = mock(Classifier.class);
+        when(classifier.distributionForInstance(any(Instance.class))).thenAnswer(invocation ->
+        {
+            double spamProbability = ((Instance) invocation.getArgument(0)).value(0);
+            return new double[] { 1.0 - spamProbability, spamProbability };
+        });
+        service = new ScoringService(classifier, new DatasetHelper().createStructure(3), 1, 64, 1000L);
+    }
+
+    @After
+    public void tearDown()
+    {
+        service.close();
+    }
+
+    @Test
+    public void submit_concurrentCallers_shouldEachReceiveTheirOwnDistributions() throws Exception
+    {
+        // given
+        List<CompletableFuture<double[][]>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 10; i++)
+            futures.add(service.submit(new double[][] { { i / 10.0, 0.0, 0.0 }, { 0.05, 0.0, 0.0 } }));
+
+        // then
+        for (int i = 0; i < 10; i++)
+        {
+            double[][] distributions = futures.get(i).get();
+            assertThat(distributions.length, equalTo(2));
+            assertThat(distributions[0][1], equalTo(i / 10.0));
+            assertThat(distributions[1][1], equalTo(0.05));
+        }
+        assertThat(service.getLatencies().getCount(), equalTo(10L));
+    }
+
+    @Test
+    public void submit_wrongNumberOfAttributes_shouldFailOnlyThatRequest() throws Exception
+    {
+        // given
+        CompletableFuture<double[][]> malformed = service.submit(new double[][] { { 0.5, 0.0 } });
+
+        // when
+        double[][] distributions = service.score(new double[][] { { 0.5, 0.0, 0.0 } });
+
+        // then
+        assertThat(distributions[0][1], equalTo(0.5));
+        try
+        {
+            malformed.get();
+            fail("Expected request to be rejected.");
+        }
+        catch (ExecutionException e)
+        {
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    @Test
+    public void submit_racingWithClose_shouldCompleteEveryRequest() throws Exception
+    {
+        // given
+        List<CompletableFuture<double[][]>> futures = Collections.synchronizedList(new ArrayList<>());
+        Thread submitter = new Thread(() ->
+        {
+            for (int i = 0; i < 10000; i++)
+                futures.add(service.submit(new double[][] { { 0.5, 0.0, 0.0 } }));
+        });
+
+        // when
+        submitter.start();
+        service.close();
+        submitter.join();
+
+        // then
+        for (CompletableFuture<double[][]> future : futures)
+        {
+            try
+            {
+                assertThat(future.get(5, TimeUnit.SECONDS)[0][1], equalTo(0.5));
+            }
+            catch (ExecutionException e)
+            {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+    }
+}